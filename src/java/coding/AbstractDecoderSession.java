@@ -0,0 +1,56 @@
+package coding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A class that factors out reading bits from the fed input for decoder sessions.
+ */
+public abstract class AbstractDecoderSession implements DecoderSession {
+    private ByteBuffer input = ByteBuffer.allocate(0);
+    private int curByte;  // the byte currently being read
+    private int bitsLeft;  // number of bits of curByte not yet read
+    private boolean zeroPadded = false;  // whether the input is complete and followed by infinitely many zeros
+
+    @Override
+    public void feed(ByteBuffer bytes) {
+        if (input.hasRemaining()) {
+            // the previous input has not been fully consumed, so keep both
+            ByteBuffer merged = ByteBuffer.allocate(input.remaining() + bytes.remaining());
+            merged.put(input).put(bytes).flip();
+            input = merged;
+        } else {
+            input = bytes;
+        }
+    }
+
+    /**
+     * @return the next bit of the input, or -1 if all the input fed so far has been read
+     */
+    protected int nextBit() {
+        if (bitsLeft == 0) {
+            if (!input.hasRemaining()) {
+                return zeroPadded ? 0 : -1;
+            }
+            curByte = input.get() & 0xFF;
+            bitsLeft = 8;
+        }
+        bitsLeft--;
+        return (curByte >> bitsLeft) & 1;
+    }
+
+    /**
+     * Declares that all input has been fed and that it is followed by infinitely many zeros,
+     * like the output of Encoder.encode, so nextBit() returns 0 instead of -1 at the end.
+     */
+    protected void padWithZeros() {
+        zeroPadded = true;
+    }
+
+    /**
+     * Skips the rest of the byte currently being read (if any), so that the next bit
+     * is the first bit of the next byte.
+     */
+    protected void alignToByte() {
+        bitsLeft = 0;
+    }
+}
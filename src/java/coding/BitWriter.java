@@ -0,0 +1,101 @@
+package coding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes bits to a channel (or output stream), most significant bit of each byte first.
+ * Complete bytes are buffered in a direct buffer and only written to the channel when the buffer is full
+ * or when flush() is called. A partially filled last byte is never written until
+ * it is completed or padded with zeros by alignToByte().
+ */
+public class BitWriter {
+    private final WritableByteChannel out;
+    private final OutputStream stream;  // the stream wrapped by out, or null if out is a channel
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private int curByte;  // bits of the partially filled byte
+    private int curBits;  // number of bits in curByte
+    private long bitsWritten;
+
+    public BitWriter(WritableByteChannel out) {
+        this.out = out;
+        this.stream = null;
+    }
+
+    public BitWriter(OutputStream out) {
+        this.out = Channels.newChannel(out);
+        this.stream = out;
+    }
+
+    /**
+     * Writes a single bit.
+     * Requires: bit is 0 or 1.
+     */
+    public void writeBit(int bit) {
+        curByte = (curByte << 1) | bit;
+        curBits++;
+        bitsWritten++;
+        if (curBits == 8) {
+            buffer.put((byte) curByte);
+            curByte = 0;
+            curBits = 0;
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Writes each of the given 1s and 0s in order.
+     */
+    public void writeBits(Iterable<Integer> bits) {
+        for (int bit : bits) {
+            writeBit(bit);
+        }
+    }
+
+    /**
+     * Pads the partially filled byte (if any) with zeros.
+     */
+    public void alignToByte() {
+        while (curBits != 0) {
+            writeBit(0);
+        }
+    }
+
+    /**
+     * Writes all complete bytes to the channel, and flushes it if it wraps an output stream.
+     */
+    public void flush() {
+        drain();
+        if (stream != null) {
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the total number of bits written so far, including those not yet flushed
+     */
+    public long bitsWritten() {
+        return bitsWritten;
+    }
+
+    private void drain() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
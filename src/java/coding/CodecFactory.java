@@ -0,0 +1,79 @@
+package coding;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe source of encoders and decoders that share immutable state,
+ * such as code tables, cumulative probabilities, or pre-trained counts.
+ * Encoders and decoders themselves are not thread-safe (adaptive models change as they read),
+ * but they are cheap to create, so each thread or each call should obtain its own.
+ */
+public interface CodecFactory {
+    /**
+     * @return a new encoder that shares the immutable state of this factory
+     */
+    Encoder newEncoder();
+
+    /**
+     * @return a new decoder that shares the immutable state of this factory
+     * and can decode the output of any encoder created by this factory
+     */
+    Decoder newDecoder();
+
+    /**
+     * Creates a factory from suppliers of encoders and decoders.
+     * Requires: both suppliers are thread-safe and the decoders can decode the output of the encoders.
+     */
+    static CodecFactory of(Supplier<? extends Encoder> encoders, Supplier<? extends Decoder> decoders) {
+        return new CodecFactory() {
+            @Override
+            public Encoder newEncoder() {
+                return encoders.get();
+            }
+
+            @Override
+            public Decoder newDecoder() {
+                return decoders.get();
+            }
+        };
+    }
+
+    /**
+     * Encodes the given text using a fresh encoder.
+     */
+    default byte[] encode(String text) {
+        return newEncoder().encode(text);
+    }
+
+    /**
+     * Decodes the given bytes using a fresh decoder.
+     */
+    default String decode(byte[] bytes) {
+        return newDecoder().decode(bytes);
+    }
+
+    /**
+     * Encodes every message with its own fresh encoder, so the shared immutable state is set up only once,
+     * and packs the results into one buffer. Large batches are encoded in parallel.
+     */
+    default EncodedBatch encodeAll(List<String> messages) {
+        return EncodedBatch.encode(this, messages);
+    }
+
+    /**
+     * Same as encodeAll(List), for an array of messages.
+     */
+    default EncodedBatch encodeAll(String[] messages) {
+        return encodeAll(Arrays.asList(messages));
+    }
+
+    /**
+     * Decodes every message of a batch created by encodeAll with this factory (or an identical one).
+     * Large batches are decoded in parallel.
+     */
+    default List<String> decodeAll(EncodedBatch batch) {
+        return batch.decode(this);
+    }
+}
@@ -0,0 +1,235 @@
+package coding;
+
+import java.io.*;
+
+/**
+ * A compressed file that text can be appended to without decoding or re-encoding what is already there.
+ * <p>
+ * The file is a sequence of segments, each of which is encoded on its own with an encoder from the factory,
+ * so the end-of-file symbol and the model state of one segment never matter to the next.
+ * Appending opens the file in append mode and adds new segments at the end,
+ * which costs time proportional to the new text only, and reading chains the segments transparently.
+ * <p>
+ * Format: the same frames as PipelinedCompressor, that is, for each segment, the length of the encoded segment
+ * as a varint followed by the encoded segment (see Frames), so either class can read what the other wrote.
+ * A crash in the middle of an append can leave a truncated last segment, which the reader rejects.
+ * Opening an appender cuts such a segment off first, so the segments appended after a crash can be read.
+ */
+public class CompressedLog {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 16;
+
+    private final File file;
+    private final CodecFactory factory;
+    private final int segmentSize;
+
+    /**
+     * Creates a log stored in file (which doesn't have to exist yet), whose segments are encoded with factory.
+     * An appender buffers up to segmentSize characters before it encodes them as a segment,
+     * since very short segments compress poorly.
+     * Requires: segmentSize > 0, and factory can encode any text that is appended
+     */
+    public CompressedLog(File file, CodecFactory factory, int segmentSize) {
+        assert segmentSize > 0;
+        this.file = file;
+        this.factory = factory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Creates a log with segments of up to DEFAULT_SEGMENT_SIZE characters.
+     */
+    public CompressedLog(File file, CodecFactory factory) {
+        this(file, factory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Appends text to the log as one or more new segments.
+     */
+    public void append(String text) {
+        try (Appender appender = appender()) {
+            appender.write(text);
+        }
+    }
+
+    /**
+     * @return an appender that adds text to the end of the log, creating the file if it doesn't exist.
+     * If the last segment is truncated (from a crash during an earlier append), it is removed first.
+     * Only one appender should be open for a file at a time.
+     */
+    public Appender appender() {
+        try {
+            if (file.exists()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    long complete = Frames.completeLength(raf);
+                    if (complete < raf.length()) {
+                        raf.setLength(complete);
+                    }
+                }
+            }
+            return new Appender(new FileOutputStream(file, true));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the whole text of the log, or the empty string if the file doesn't exist
+     * @throws IllegalArgumentException if a segment is truncated or invalid
+     */
+    public String read() {
+        if (!file.exists()) {
+            return "";
+        }
+        try (Reader reader = reader()) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[8192];
+            for (int n = reader.read(buf); n >= 0; n = reader.read(buf)) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return a Reader over the text of the log that decodes one segment at a time,
+     * so only one decoded segment is held in memory
+     */
+    public Reader reader() {
+        try {
+            return new SegmentReader(new BufferedInputStream(new FileInputStream(file)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Buffers text and writes it to the end of the log as segments.
+     * A segment is written whenever segmentSize characters are buffered, on flush, and on close,
+     * and each segment is written with a single call, so segments from earlier appends are never touched.
+     */
+    public class Appender implements AutoCloseable {
+        private final OutputStream out;
+        private final StringBuilder buffer = new StringBuilder();
+        private boolean open = true;
+
+        private Appender(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Appends the characters of text in order.
+         */
+        public void write(CharSequence text) {
+            if (!open) {
+                throw new IllegalStateException("The appender is closed");
+            }
+            for (int i = 0; i < text.length(); ) {
+                int n = Math.min(text.length() - i, segmentSize - buffer.length());
+                buffer.append(text, i, i + n);
+                i += n;
+                if (buffer.length() == segmentSize) {
+                    writeSegment();
+                }
+            }
+        }
+
+        /**
+         * Writes everything appended so far to the file as a segment (unless nothing is buffered).
+         */
+        public void flush() {
+            if (!open) {
+                throw new IllegalStateException("The appender is closed");
+            }
+            writeSegment();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Flushes and closes the file. Does nothing if the appender is already closed.
+         */
+        @Override
+        public void close() {
+            if (!open) {
+                return;
+            }
+            flush();
+            open = false;
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void writeSegment() {
+            if (buffer.length() == 0) {
+                return;
+            }
+            byte[] frame = Frames.frame(factory.encode(buffer.toString()));
+            try {
+                out.write(frame);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Reads the segments one after another and serves the characters of the current one.
+     */
+    private class SegmentReader extends Reader {
+        private final InputStream in;
+        private String segment = "";
+        private int pos = 0;
+        private int index = 0;  // of the next segment
+
+        private SegmentReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Decodes the next segment.
+         * @return false if there are no more segments
+         */
+        private boolean nextSegment() throws IOException {
+            int length = Frames.readLength(in);
+            if (length < 0) {
+                return false;
+            }
+            byte[] encoded = new byte[length];
+            Frames.readPayload(in, encoded, length, index);
+            segment = factory.decode(encoded);
+            pos = 0;
+            index++;
+            return true;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == segment.length()) {
+                if (!nextSegment()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, segment.length() - pos);
+            segment.getChars(pos, pos + n, buf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package coding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A channel that compresses every byte written to it with an encoder session,
+ * which in turn writes the compressed bytes to the target channel.
+ * Bytes are taken from the source buffer one at a time and passed to the session as characters,
+ * so no intermediate String or byte array is created.
+ * For example, to compress with AC and a Dirichlet model:
+ * new CompressingChannel(new ACEncoderSession(new DirichletModel(), target), target)
+ */
+public class CompressingChannel implements WritableByteChannel {
+    private final EncoderSession session;
+    private final Channel target;
+    private boolean open = true;
+
+    /**
+     * Creates a compressing channel.
+     * Requires: session writes to target. Closing this channel finishes the session and closes target.
+     */
+    public CompressingChannel(EncoderSession session, Channel target) {
+        this.session = session;
+        this.target = target;
+    }
+
+    /**
+     * Compresses all remaining bytes of src.
+     * @return the number of (uncompressed) bytes consumed from src
+     * @throws IllegalArgumentException if src has a non-ASCII byte, in which case no byte is consumed,
+     * or if the session rejects a byte, in which case src is left positioned at that byte
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int start = src.position();
+        int end = src.limit();
+        for (int i = start; i < end; i++) {
+            if (src.get(i) < 0) {
+                throw new IllegalArgumentException("Unsupported character: " + (src.get(i) & 0xFF));
+            }
+        }
+        for (int i = start; i < end; i++) {
+            session.write((char) src.get(i));
+            src.position(i + 1);
+        }
+        return end - start;
+    }
+
+    /**
+     * Makes everything written so far decodable by the receiver without ending the stream.
+     */
+    public void flush() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        session.flush();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            session.finish();
+            target.close();
+        }
+    }
+}
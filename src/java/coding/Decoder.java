@@ -1,6 +1,9 @@
 package coding;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 
 public interface Decoder {
     /**
@@ -19,4 +22,34 @@ public interface Decoder {
      * Decodes the content of the input file and writes the output string to the output file.
      */
     void decode(File input, File output);
+
+    /**
+     * Returns a Reader that decodes the bytes on demand, so reading the first characters
+     * costs time proportional to what is read rather than to the length of the whole text.
+     * Decoders that cannot decode lazily decode everything up front.
+     */
+    default Reader decodeLazily(byte[] bytes) {
+        return new StringReader(decode(bytes));
+    }
+
+    /**
+     * Decodes only the first n characters of the bytes (or all of them if the text is shorter),
+     * stopping as soon as they have been decoded.
+     */
+    default String decodePrefix(byte[] bytes, int n) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            Reader reader = decodeLazily(bytes);
+            while (sb.length() < n) {
+                int c = reader.read();
+                if (c < 0) {
+                    break;
+                }
+                sb.append((char) c);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
 }
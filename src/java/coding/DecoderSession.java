@@ -0,0 +1,48 @@
+package coding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stateful decoder that is fed its input incrementally and yields each character
+ * as soon as the input fed so far determines it.
+ * It decodes the output of the matching EncoderSession.
+ */
+public interface DecoderSession {
+    /**
+     * Gives the next chunk of encoded input to the decoder.
+     * The decoder reads from the buffer lazily instead of copying it,
+     * so the buffer must not be modified until read() has returned -1.
+     */
+    void feed(ByteBuffer bytes);
+
+    /**
+     * Same as feed(ByteBuffer), for an array of bytes.
+     */
+    default void feed(byte[] bytes) {
+        feed(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * @return the next decoded character, or -1 if it cannot be determined from the input fed so far
+     * or if the end of the stream has been reached (see isFinished()).
+     */
+    int read();
+
+    /**
+     * @return whether the end of the stream has been decoded
+     */
+    boolean isFinished();
+
+    /**
+     * @return all characters that can be decoded from the input fed so far
+     */
+    default String readAvailable() {
+        StringBuilder sb = new StringBuilder();
+        int c = read();
+        while (c >= 0) {
+            sb.append((char) c);
+            c = read();
+        }
+        return sb.toString();
+    }
+}
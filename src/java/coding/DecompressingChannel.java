@@ -0,0 +1,85 @@
+package coding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A channel that reads compressed bytes from the source channel into a direct buffer,
+ * decodes them with a decoder session and returns the decoded characters as bytes.
+ * The session reads straight from the direct buffer, so the compressed data is never copied.
+ */
+public class DecompressingChannel implements ReadableByteChannel {
+    private final DecoderSession session;
+    private final ReadableByteChannel source;
+    private final ByteBuffer input;
+    private boolean open = true;
+
+    /**
+     * Creates a decompressing channel with an input buffer of the given size.
+     * Closing this channel closes source.
+     */
+    public DecompressingChannel(DecoderSession session, ReadableByteChannel source, int bufferSize) {
+        this.session = session;
+        this.source = source;
+        this.input = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Creates a decompressing channel with a 64 KiB input buffer.
+     */
+    public DecompressingChannel(DecoderSession session, ReadableByteChannel source) {
+        this(session, source, 1 << 16);
+    }
+
+    /**
+     * Decodes as many characters as fit in dst.
+     * @return the number of bytes put into dst, or -1 at the end of the compressed stream.
+     * May return 0 if source is non-blocking and has no data available.
+     * @throws EOFException if source ends before the end of the compressed stream
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int count = 0;
+        while (dst.hasRemaining()) {
+            int c = session.read();
+            if (c >= 0) {
+                dst.put((byte) c);
+                count++;
+            } else if (session.isFinished()) {
+                return count == 0 ? -1 : count;
+            } else {
+                // the session has consumed all of the input buffer
+                input.clear();
+                int n = source.read(input);
+                input.flip();
+                if (n < 0) {
+                    throw new EOFException("Compressed stream ended unexpectedly");
+                }
+                if (n == 0) {
+                    return count;
+                }
+                session.feed(input);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package coding;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Many encoded messages packed into one contiguous buffer:
+ * message i is data[offsets[i]] to data[offsets[i + 1] - 1].
+ * Created by CodecFactory.encodeAll and read back by CodecFactory.decodeAll.
+ * <p>
+ * A batch is only a container: each message is encoded on its own, exactly as CodecFactory.encode would,
+ * so any message can be decoded without the others. What the messages share (the model, codebook
+ * or terminator) is the immutable state held by the factory, which is built once rather than per message.
+ * Adaptive models change with every character, so each message still needs a fresh encoder and decoder.
+ */
+public final class EncodedBatch {
+    /**
+     * Batches with at least this many messages are encoded and decoded in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    /**
+     * Creates a batch from copies of the given arrays, e.g. ones stored from data() and offsets().
+     * Requires: offsets is nonempty, starts at 0, is weakly increasing and ends at data.length.
+     */
+    public EncodedBatch(byte[] data, int[] offsets) {
+        assert offsets.length > 0 && offsets[0] == 0 && offsets[offsets.length - 1] == data.length;
+        this.data = data.clone();
+        this.offsets = offsets.clone();
+    }
+
+    /**
+     * @return a copy of the encoded bytes of all messages
+     */
+    public byte[] data() {
+        return data.clone();
+    }
+
+    /**
+     * @return a copy of the offsets of the messages in data(), followed by data().length
+     */
+    public int[] offsets() {
+        return offsets.clone();
+    }
+
+    /**
+     * @return the number of messages in this batch
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return a copy of the encoded bytes of message i
+     */
+    public byte[] message(int i) {
+        return Arrays.copyOfRange(data, offsets[i], offsets[i + 1]);
+    }
+
+    private static IntStream indices(int size) {
+        IntStream indices = IntStream.range(0, size);
+        return size >= PARALLEL_THRESHOLD ? indices.parallel() : indices;
+    }
+
+    /**
+     * Encodes each message with a new encoder from the factory and packs the results into one batch.
+     */
+    static EncodedBatch encode(CodecFactory factory, List<String> messages) {
+        byte[][] encoded = new byte[messages.size()][];
+        indices(messages.size()).forEach(i -> encoded[i] = factory.newEncoder().encode(messages.get(i)));
+        int[] offsets = new int[encoded.length + 1];
+        for (int i = 0; i < encoded.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+        }
+        byte[] data = new byte[offsets[encoded.length]];
+        for (int i = 0; i < encoded.length; i++) {
+            System.arraycopy(encoded[i], 0, data, offsets[i], encoded[i].length);
+        }
+        return new EncodedBatch(data, offsets);
+    }
+
+    /**
+     * Decodes each message with a new decoder from the factory.
+     */
+    List<String> decode(CodecFactory factory) {
+        String[] decoded = new String[size()];
+        indices(size()).forEach(i -> decoded[i] = factory.newDecoder().decode(message(i)));
+        return Arrays.asList(decoded);
+    }
+}
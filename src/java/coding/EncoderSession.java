@@ -0,0 +1,42 @@
+package coding;
+
+/**
+ * A stateful encoder that accepts its input incrementally, for data that arrives over time.
+ * The output is a sequence of segments: each call to flush() ends the current segment
+ * so that everything written so far can be decoded, without ending the stream.
+ * Adaptive model states carry over from one segment to the next.
+ * Closing the session is the same as calling finish().
+ */
+public interface EncoderSession extends AutoCloseable {
+    /**
+     * Encodes the next character.
+     */
+    void write(char c);
+
+    /**
+     * Encodes the characters of chunk in order.
+     */
+    default void write(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            write(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * Emits enough bits (padded to a whole byte) that every character written so far can be decoded,
+     * and flushes the underlying output. Does nothing but flush the output
+     * if nothing has been written since the last flush.
+     */
+    void flush();
+
+    /**
+     * Flushes and then marks the end of the stream.
+     * Nothing can be written after the session is finished.
+     */
+    void finish();
+
+    @Override
+    default void close() {
+        finish();
+    }
+}
@@ -0,0 +1,77 @@
+package coding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * The frames written by PipelinedCompressor and CompressedLog:
+ * the length of the payload as a varint followed by the payload.
+ */
+final class Frames {
+    private Frames() {
+    }
+
+    /**
+     * @return the frame of payload
+     */
+    static byte[] frame(byte[] payload) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 5);
+        Util.writeVarint(frame, payload.length);
+        frame.writeBytes(payload);
+        return frame.toByteArray();
+    }
+
+    /**
+     * @return the length of the payload of the next frame, or -1 if the stream ends before the frame starts
+     * @throws IllegalArgumentException if the length is invalid or the stream ends in the middle of it
+     */
+    static int readLength(InputStream in) {
+        long length = Util.readVarint(in);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid frame length " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Reads the payload of frame number index, of the given length, into buffer[0, length).
+     * @throws IllegalArgumentException if the stream ends before the payload does
+     */
+    static void readPayload(InputStream in, byte[] buffer, int length, long index) throws IOException {
+        if (in.readNBytes(buffer, 0, length) < length) {
+            throw new IllegalArgumentException("Truncated frame " + index);
+        }
+    }
+
+    /**
+     * Walks the frame headers of file from its start, seeking over the payloads,
+     * so the cost is proportional to the number of frames rather than the size of the file.
+     * @return the length of the longest prefix of file that consists of complete frames
+     */
+    static long completeLength(RandomAccessFile file) throws IOException {
+        long end = file.length();
+        long frameStart = 0;
+        while (frameStart < end) {
+            file.seek(frameStart);
+            long length = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = file.read();
+                if (b < 0 || shift > 56) {
+                    return frameStart;  // the header is torn or garbage
+                }
+                length |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b >= 0x80);
+            long frameEnd = file.getFilePointer() + length;
+            if (length > Integer.MAX_VALUE - 8 || frameEnd > end) {
+                return frameStart;
+            }
+            frameStart = frameEnd;
+        }
+        return frameStart;
+    }
+}
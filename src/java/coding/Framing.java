@@ -0,0 +1,18 @@
+package coding;
+
+/**
+ * How an encoded text marks where it ends.
+ */
+public enum Framing {
+    /**
+     * The end-of-file symbol (128) is encoded after the text. This is the default.
+     */
+    END_OF_FILE,
+
+    /**
+     * The number of characters is written as a varint before the encoded text, and there is no end-of-file symbol.
+     * Models give no probability to end-of-file, which saves bits on every character,
+     * and decoders know the size of the output before they start.
+     */
+    LENGTH_PREFIX
+}
@@ -0,0 +1,234 @@
+package coding;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Compresses and decompresses files in a pipeline, so that reading, encoding and writing overlap
+ * instead of running one after another:
+ * a reader thread reads blocks of the input, a pool of workers encodes (or decodes) them,
+ * and the calling thread writes the results in the order of the input.
+ * <p>
+ * The stages are connected by bounded queues, and the buffers that blocks are read into are recycled
+ * once their result has been written. There is a fixed number of buffers,
+ * so the reader waits when the workers or the writer fall behind, and memory stays bounded
+ * even if one slow block holds back the blocks after it.
+ * <p>
+ * Format: a sequence of frames, each of which is the length of the encoded block as a varint
+ * followed by the encoded block. Blocks are encoded independently with encoders from the factory.
+ */
+public class PipelinedCompressor {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final CodecFactory factory;
+    private final int blockSize;
+    private final int workers;
+
+    /**
+     * A block read by the reader: buffer[0, length) holds its bytes, and result is what the workers made of it.
+     */
+    private record Block(int index, byte[] buffer, int length, byte[] result) {
+    }
+
+    private static final Block END = new Block(-1, null, 0, null);  // no more blocks
+    private static final Block FAILED = new Block(-1, null, 0, null);  // a stage failed
+
+    /**
+     * Reads the block with the given index into buffer, or into a larger buffer if it doesn't fit.
+     */
+    private interface BlockSource {
+        /**
+         * @return the block, or null if there are no more blocks
+         */
+        Block next(int index, byte[] buffer) throws IOException;
+    }
+
+    /**
+     * Creates a compressor that splits the input into blocks of blockSize characters
+     * and encodes them on the given number of worker threads with encoders from factory.
+     * Requires: blockSize > 0, workers > 0, and factory can encode any ASCII text
+     */
+    public PipelinedCompressor(CodecFactory factory, int blockSize, int workers) {
+        assert blockSize > 0 && workers > 0;
+        this.factory = factory;
+        this.blockSize = blockSize;
+        this.workers = workers;
+    }
+
+    /**
+     * Creates a compressor with blocks of DEFAULT_BLOCK_SIZE characters and one worker per processor.
+     */
+    public PipelinedCompressor(CodecFactory factory) {
+        this(factory, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Compresses the input file into the output file.
+     * @throws IllegalArgumentException if the input has non-ASCII characters
+     */
+    public void compress(File input, File output) {
+        try (InputStream in = new FileInputStream(input); OutputStream out = new FileOutputStream(output)) {
+            compress(in, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decompresses the input file, written by compress, into the output file.
+     */
+    public void decompress(File input, File output) {
+        try (InputStream in = new FileInputStream(input); OutputStream out = new FileOutputStream(output)) {
+            decompress(in, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compresses everything from in to out. Neither stream is closed.
+     * @throws IllegalArgumentException if the input has non-ASCII characters
+     */
+    public void compress(InputStream in, OutputStream out) {
+        run(blockSize, (index, buffer) -> {
+            int length = in.readNBytes(buffer, 0, blockSize);
+            return length == 0 ? null : new Block(index, buffer, length, null);
+        }, block -> {
+            return Frames.frame(factory.encode(new String(block.buffer, 0, block.length, StandardCharsets.ISO_8859_1)));
+        }, out);
+    }
+
+    /**
+     * Decompresses everything from in, written by compress, to out. Neither stream is closed.
+     * @throws IllegalArgumentException if the input is truncated or invalid
+     */
+    public void decompress(InputStream in, OutputStream out) {
+        run(0, (index, buffer) -> {
+            int length = Frames.readLength(in);
+            if (length < 0) {
+                return null;
+            }
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            Frames.readPayload(in, buffer, length, index);
+            return new Block(index, buffer, length, null);
+        }, block -> factory.decode(Arrays.copyOf(block.buffer, block.length)).getBytes(StandardCharsets.ISO_8859_1), out);
+    }
+
+    private void run(int bufferSize, BlockSource source, Function<Block, byte[]> transform, OutputStream out) {
+        int buffers = 2 * workers;
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        BlockingQueue<Block> work = new ArrayBlockingQueue<>(buffers + workers);
+        BlockingQueue<Block> done = new ArrayBlockingQueue<>(buffers + workers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 1);
+
+        // A stage that fails records the failure, stops the other stages and wakes up the writer.
+        // The queues are cleared so that the writer's wake-up call always fits.
+        Function<Runnable, Runnable> guarded = stage -> () -> {
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                if (failure.compareAndSet(null, e)) {
+                    pool.shutdownNow();
+                    done.clear();
+                    done.offer(FAILED);
+                }
+            }
+        };
+        List<Runnable> stages = new ArrayList<>();
+        stages.add(() -> {
+            try {
+                int index = 0;
+                while (true) {
+                    Block block = source.next(index, free.take());
+                    if (block == null) {
+                        break;
+                    }
+                    work.put(block);
+                    index++;
+                }
+                for (int i = 0; i < workers; i++) {
+                    work.put(END);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < workers; i++) {
+            stages.add(() -> {
+                try {
+                    while (true) {
+                        Block block = work.take();
+                        if (block == END) {
+                            done.put(END);
+                            return;
+                        }
+                        done.put(new Block(block.index, block.buffer, block.length, transform.apply(block)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            for (Runnable stage : stages) {
+                pool.execute(guarded.apply(stage));
+            }
+            // write the blocks in order, holding back any block that finishes before the ones ahead of it
+            Map<Integer, Block> pending = new HashMap<>();
+            int next = 0;
+            int finishedWorkers = 0;
+            while (finishedWorkers < workers) {
+                Block block = done.take();
+                if (failure.get() != null) {
+                    break;
+                }
+                if (block == END) {
+                    finishedWorkers++;
+                    continue;
+                }
+                pending.put(block.index, block);
+                while (pending.containsKey(next)) {
+                    Block ready = pending.remove(next);
+                    out.write(ready.result);
+                    free.add(ready.buffer);
+                    next++;
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (e instanceof Error error) {
+            throw error;
+        } else if (e != null) {
+            throw new RuntimeException(e);
+        }
+    }
+}
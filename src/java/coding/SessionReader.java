@@ -0,0 +1,45 @@
+package coding;
+
+import java.io.Reader;
+
+/**
+ * A Reader that decodes characters on demand from a decoder session
+ * that has already been fed all of its input.
+ */
+public class SessionReader extends Reader {
+    private final DecoderSession session;
+
+    public SessionReader(DecoderSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public int read() {
+        int c = session.read();
+        if (c < 0 && !session.isFinished()) {
+            throw new IllegalArgumentException("Failed to decode: the input ended before the end-of-file symbol");
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] buf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len) {
+            int c = read();
+            if (c < 0) {
+                break;
+            }
+            buf[off + n++] = (char) c;
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
@@ -1,7 +1,10 @@
 package coding;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A class for utilities.
@@ -22,6 +25,17 @@ public class Util {
         return freqs;
     }
 
+    /**
+     * Counts the frequencies of the Unicode code points in text.
+     * Unlike countFreqs, this works for any alphabet, and only code points that appear take up space.
+     * @return a map from each code point that appears in text to the number of times it appears
+     */
+    public static Map<Integer, Integer> countCodePoints(String text) {
+        Map<Integer, Integer> freqs = new HashMap<>();
+        text.codePoints().forEach(codePoint -> freqs.merge(codePoint, 1, Integer::sum));
+        return freqs;
+    }
+
     /**
      * Counts the frequencies of characters of the contents in the given file.
      * @return an array freqs of size 129 where freqs[c] is the number of times
@@ -65,4 +79,65 @@ public class Util {
         }
         return bytes;
     }
+
+    /**
+     * Writes a nonnegative number as a varint: 7 bits per byte, least significant group first,
+     * with the highest bit of each byte set if more bytes follow.
+     */
+    public static void writeVarint(OutputStream out, long n) {
+        assert n >= 0;
+        try {
+            while (n >= 0x80) {
+                out.write((int) (n & 0x7F) | 0x80);
+                n >>>= 7;
+            }
+            out.write((int) n);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a varint written by writeVarint from the current position of the buffer.
+     */
+    public static long readVarint(ByteBuffer in) {
+        long n = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.get() & 0xFF;
+            n |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return n;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * Reads a varint written by writeVarint from the stream.
+     * @return the varint, or -1 if the stream ends before it starts
+     * @throws IllegalArgumentException if the stream ends in the middle of the varint
+     */
+    public static long readVarint(InputStream in) {
+        long n = 0;
+        int shift = 0;
+        try {
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    if (shift == 0) {
+                        return -1;
+                    }
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                n |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return n;
+                }
+                shift += 7;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package coding.ac;
+
+import coding.CodecFactory;
+import coding.Util;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe factory for AC encoders and decoders.
+ * Each encoder and decoder gets its own probability model (models can have internal states),
+ * but the immutable parts such as fixed cumulative probabilities and pre-trained counts
+ * are held once by the factory and shared by every model it creates.
+ */
+public class ACCodecFactory implements CodecFactory {
+    private final Supplier<ProbModel> modelSupplier;
+
+    /**
+     * Creates a factory that calls modelSupplier to get the model for each new encoder or decoder.
+     * Requires: modelSupplier is thread-safe and returns models that behave identically.
+     */
+    public ACCodecFactory(Supplier<ProbModel> modelSupplier) {
+        this.modelSupplier = modelSupplier;
+    }
+
+    /**
+     * @return a factory using the default fixed probability model
+     */
+    public static ACCodecFactory fixed() {
+        FixedProbModel model = new FixedProbModel();
+        return new ACCodecFactory(() -> model);
+    }
+
+    /**
+     * @return a factory using a fixed probability model with the given cumulative probabilities
+     */
+    public static ACCodecFactory fixed(double[] probs) {
+        FixedProbModel model = new FixedProbModel(probs);
+        return new ACCodecFactory(() -> model);
+    }
+
+    /**
+     * @return a factory using Dirichlet models with the given alpha
+     */
+    public static ACCodecFactory dirichlet(double alpha) {
+        return new ACCodecFactory(() -> new DirichletModel(alpha));
+    }
+
+    /**
+     * @return a factory using Dirichlet models with the given alpha,
+     * pre-trained on the character counts of trainingText
+     * @throws IllegalArgumentException if trainingText has non-ASCII characters
+     */
+    public static ACCodecFactory dirichlet(double alpha, String trainingText) {
+        checkAscii(trainingText);
+        int[] priorFreqs = Arrays.copyOf(Util.countFreqs(trainingText), 128);  // drop the end-of-file symbol
+        return new ACCodecFactory(() -> new DirichletModel(alpha, priorFreqs));
+    }
+
+    /**
+     * @return a factory using bigram Dirichlet models with the given alpha
+     */
+    public static ACCodecFactory bigram(double alpha) {
+        return new ACCodecFactory(() -> new BigramDirichletModel(alpha));
+    }
+
+    /**
+     * @return a factory using bigram Dirichlet models with the given alpha,
+     * pre-trained on the bigram counts of trainingText.
+     * All models share a single copy of the counts until they update them.
+     * @throws IllegalArgumentException if trainingText has non-ASCII characters
+     */
+    public static ACCodecFactory bigram(double alpha, String trainingText) {
+        checkAscii(trainingText);
+        int[][] priorFreqs = new int[128][128];
+        for (int i = 1; i < trainingText.length(); i++) {
+            priorFreqs[trainingText.charAt(i - 1)][trainingText.charAt(i)]++;
+        }
+        return new ACCodecFactory(() -> new BigramDirichletModel(alpha, priorFreqs));
+    }
+
+    private static void checkAscii(String trainingText) {
+        for (char c : trainingText.toCharArray()) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+        }
+    }
+
+    @Override
+    public ACEncoder newEncoder() {
+        return new ACEncoder(modelSupplier.get());
+    }
+
+    @Override
+    public ACDecoder newDecoder() {
+        return new ACDecoder(modelSupplier.get());
+    }
+}
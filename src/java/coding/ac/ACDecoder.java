@@ -1,30 +1,52 @@
 package coding.ac;
 
 import coding.AbstractDecoder;
+import coding.Framing;
+import coding.SessionReader;
+import coding.Util;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Represents the decoder in arithmetic coding (AC).
  */
 public class ACDecoder extends AbstractDecoder {
+    // a character can cost less than a bit, so the length can't be checked against the input;
+    // instead, the output is pre-sized for at most this many characters per input byte and grows past that
+    private static final int INITIAL_CHARS_PER_BYTE = 64;
+
     private final ProbModel probModel;
+    private final Framing framing;
 
     /**
-     * Creates an AC decoder with the given probabilistic model.
+     * Creates an AC decoder with the given probabilistic model and framing.
+     * Note that this should be a new instance of the same probabilistic model
+     * as the one used in the encoder, and the same framing.
+     */
+    public ACDecoder(ProbModel probModel, Framing framing) {
+        this.probModel = probModel;
+        this.framing = framing;
+    }
+
+    /**
+     * Creates an AC decoder with the given probabilistic model for text that ends with the end-of-file symbol.
      * Note that this should be a new instance of the same probabilistic model
      * as the one used in the encoder,
      */
     public ACDecoder(ProbModel probModel) {
-        this.probModel = probModel;
+        this(probModel, Framing.END_OF_FILE);
     }
 
     /**
      * The default constructor uses the default fixed probability model.
      */
     public ACDecoder() {
-        this.probModel = new FixedProbModel();
+        this(new FixedProbModel());
     }
 
-
     @Override
     public String decode(byte[] bytes) {
         // To decode, we first read in several bits and convert it to a double.
@@ -33,7 +55,20 @@ public class ACDecoder extends AbstractDecoder {
         // If [low, high) is entirely contained in the first or second half,
         // we renormalize low, high, and encoded, then we bring in another bit from the bytes.
         // Invariant: encoded is the renormalized double for the bytes up to (but excluding) nextBit.
-        StringBuilder sb = new StringBuilder();
+        boolean lengthPrefix = framing == Framing.LENGTH_PREFIX;
+        long length = -1;  // number of characters to decode if the length is known
+        if (lengthPrefix) {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            length = Util.readVarint(in);
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            bytes = Arrays.copyOfRange(bytes, in.position(), bytes.length);
+        }
+        // when the length is known, the output is usually allocated at its exact size
+        StringBuilder sb = lengthPrefix
+                ? new StringBuilder((int) Math.min(length, (long) INITIAL_CHARS_PER_BYTE * (bytes.length + 1)))
+                : new StringBuilder();
         double low = 0;
         double high = 1;
         double encoded = 0;
@@ -44,12 +79,18 @@ public class ACDecoder extends AbstractDecoder {
             nextBit++;
         }
         while (true) {
+            if (sb.length() == length) {
+                return sb.toString();
+            }
             double[] probs = probModel.getProbs();
             assert probs[probs.length - 1] < 1;
+            if (lengthPrefix) {
+                probs = ACEncoder.withoutEndOfFile(probs);
+            }
             assert low <= encoded && encoded < high
                 : String.format("low: %f, encoded: %f, high: %f", low, encoded, high);
             boolean found = false;
-            if (encoded >= low + (high - low) * probs[probs.length - 1]) {
+            if (!lengthPrefix && encoded >= low + (high - low) * probs[probs.length - 1]) {
                 // end of file
                 return sb.toString();
             }
@@ -119,4 +160,17 @@ public class ACDecoder extends AbstractDecoder {
             }
         }
     }
+
+    /**
+     * Like decode, this uses the probabilistic model of this decoder,
+     * so only one of decode and decodeLazily can be called on the same decoder.
+     * With length-prefix framing, this decodes the whole text up front.
+     */
+    @Override
+    public Reader decodeLazily(byte[] bytes) {
+        if (framing == Framing.LENGTH_PREFIX) {
+            return new StringReader(decode(bytes));
+        }
+        return new SessionReader(new ACDecoderSession(probModel, bytes));
+    }
 }
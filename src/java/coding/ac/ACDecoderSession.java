@@ -0,0 +1,167 @@
+package coding.ac;
+
+import coding.AbstractDecoderSession;
+
+/**
+ * Decodes the output of ACEncoderSession incrementally.
+ * A character is returned as soon as the bits fed so far determine it,
+ * i.e. as soon as every number starting with those bits lies in the range of a single character.
+ */
+public class ACDecoderSession extends AbstractDecoderSession {
+    private final ProbModel probModel;
+    private double low = 0;
+    private double high = 1;
+    private double encoded = 0;  // the renormalized double for the bits read so far in this segment
+    private int renorms = 0;  // number of renormalizations in this segment
+    private int bitsRead = 0;  // number of bits read so far in this segment
+    private int bitsToSkip = 0;  // padding bits between the end of the previous segment and the next one
+    private int segmentChars = 0;  // number of characters decoded in this segment
+    private boolean finished = false;
+    private final boolean singleMessage;  // whether the input is the output of ACEncoder.encode
+
+    /**
+     * Creates an AC decoder session with the given probabilistic model.
+     * Note that this should be a new instance of the same probabilistic model
+     * as the one used in the encoder session.
+     */
+    public ACDecoderSession(ProbModel probModel) {
+        this.probModel = probModel;
+        this.singleMessage = false;
+    }
+
+    /**
+     * Creates a session that decodes the output of ACEncoder.encode, i.e. a single message
+     * that ends at the first end-of-file symbol and is followed by infinitely many zeros.
+     */
+    ACDecoderSession(ProbModel probModel, byte[] message) {
+        this.probModel = probModel;
+        this.singleMessage = true;
+        feed(message);
+        padWithZeros();
+    }
+
+    @Override
+    public int read() {
+        while (!finished) {
+            while (bitsToSkip > 0) {
+                if (nextBit() < 0) {
+                    return -1;
+                }
+                bitsToSkip--;
+            }
+            double[] probs = probModel.getProbs();
+            while (true) {
+                // The actual encoded number lies in [encoded, encoded + 2^{renorms - bitsRead}),
+                // so we know the next character once that range lies entirely within its range.
+                double width = Math.pow(2, renorms - bitsRead);
+                int c = findChar(probs);
+                if (c == probs.length) {
+                    if (singleMessage) {
+                        finished = true;
+                        return -1;
+                    }
+                    endSegment(probs);
+                    break;
+                }
+                double charHigh = low + (high - low) * probs[c];
+                if (encoded + width <= charHigh) {
+                    decodeChar(probs, (char) c, charHigh);
+                    return c;
+                }
+                int bit = nextBit();
+                if (bit < 0) {
+                    return -1;
+                }
+                bitsRead++;
+                encoded += bit * Math.pow(2, renorms - bitsRead);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the character whose range contains encoded, found by binary search
+     * over the cumulative probabilities, or probs.length for the end-of-file symbol
+     */
+    private int findChar(double[] probs) {
+        // smallest c such that the upper end of the range of c is greater than encoded
+        int lo = 0;
+        int hi = probs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) / 2;
+            if (low + (high - low) * probs[mid] > encoded) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Shrinks [low, high) to the range of c and renormalizes.
+     */
+    private void decodeChar(double[] probs, char c, double charHigh) {
+        probModel.update(c);  // inform the probabilistic model that the next character is c
+        segmentChars++;
+        if (c > 0) {
+            low = low + (high - low) * probs[c - 1];
+        }
+        high = charHigh;
+        while (high <= 0.5 || low >= 0.5 || (high <= 0.75 && low >= 0.25)) {
+            if (high <= 0.5) {
+                low *= 2;
+                high *= 2;
+                encoded *= 2;
+            } else if (low >= 0.5) {
+                low = (low - 0.5) * 2;
+                high = (high - 0.5) * 2;
+                encoded = (encoded - 0.5) * 2;
+            } else {
+                low = (low - 0.25) * 2;
+                high = (high - 0.25) * 2;
+                encoded = (encoded - 0.25) * 2;
+            }
+            renorms++;
+        }
+    }
+
+    /**
+     * Works out where the encoder ended the segment by repeating its termination steps:
+     * every renormalization accounts for exactly one bit, and the termination adds two more.
+     */
+    private void endSegment(double[] probs) {
+        low = low + (high - low) * probs[probs.length - 1];
+        while (high <= 0.5 || low >= 0.5 || (high <= 0.75 && low >= 0.25)) {
+            if (high <= 0.5) {
+                low *= 2;
+                high *= 2;
+            } else if (low >= 0.5) {
+                low = (low - 0.5) * 2;
+                high = (high - 0.5) * 2;
+            } else {
+                low = (low - 0.25) * 2;
+                high = (high - 0.25) * 2;
+            }
+            renorms++;
+        }
+        int segmentBits = renorms + 2;
+        int paddedBits = (segmentBits + 7) / 8 * 8;
+        if (bitsRead > paddedBits) {
+            throw new IllegalArgumentException("Failed to decode: read past the end of a segment");
+        }
+        bitsToSkip = paddedBits - bitsRead;
+        finished = segmentChars == 0;  // an empty segment marks the end of the stream
+        low = 0;
+        high = 1;
+        encoded = 0;
+        renorms = 0;
+        bitsRead = 0;
+        segmentChars = 0;
+    }
+}
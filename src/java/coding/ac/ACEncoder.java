@@ -1,8 +1,10 @@
 package coding.ac;
 
 import coding.AbstractEncoder;
+import coding.Framing;
 import coding.Util;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,19 +13,41 @@ import java.util.List;
  */
 public class ACEncoder extends AbstractEncoder {
     private final ProbModel probModel;
+    private final Framing framing;
 
     /**
-     * Creates an AC encoder with the given probabilistic model.
+     * Creates an AC encoder with the given probabilistic model and framing.
      */
-    public ACEncoder(ProbModel probModel) {
+    public ACEncoder(ProbModel probModel, Framing framing) {
         this.probModel = probModel;
+        this.framing = framing;
+    }
+
+    /**
+     * Creates an AC encoder with the given probabilistic model that ends the text with the end-of-file symbol.
+     */
+    public ACEncoder(ProbModel probModel) {
+        this(probModel, Framing.END_OF_FILE);
     }
 
     /**
      * The default constructor uses the default fixed probability model.
      */
     public ACEncoder() {
-        this.probModel = new FixedProbModel();
+        this(new FixedProbModel());
+    }
+
+    /**
+     * @return the cumulative probabilities of the characters scaled up so that they sum to 1,
+     * leaving no probability for the end-of-file symbol
+     */
+    static double[] withoutEndOfFile(double[] probs) {
+        double total = probs[probs.length - 1];
+        for (int c = 0; c < probs.length; c++) {
+            probs[c] /= total;
+        }
+        probs[probs.length - 1] = 1;
+        return probs;
     }
 
     @Override
@@ -33,9 +57,13 @@ public class ACEncoder extends AbstractEncoder {
         double low = 0;
         double high = 1;
         int underflows = 0;
+        boolean lengthPrefix = framing == Framing.LENGTH_PREFIX;
         for (char c : chars) {
             double[] probs = probModel.getProbs();
             assert probs[probs.length - 1] < 1;
+            if (lengthPrefix) {
+                probs = withoutEndOfFile(probs);
+            }
             if (c >= probs.length) {
                 throw new IllegalArgumentException("Character " + c + " out of range of cumulative probabilities");
             }
@@ -83,9 +111,11 @@ public class ACEncoder extends AbstractEncoder {
                 }
             }
         }
-        double[] probs = probModel.getProbs();
-        // stop symbol
-        low = low + (high - low) * probs[probs.length - 1];
+        if (!lengthPrefix) {
+            double[] probs = probModel.getProbs();
+            // stop symbol
+            low = low + (high - low) * probs[probs.length - 1];
+        }
         while (high <= 0.5 || low >= 0.5) {
             if (high <= 0.5) {
                 ans.add(0);
@@ -110,7 +140,13 @@ public class ACEncoder extends AbstractEncoder {
         ans.add(1);
 //        printAsBinaryFraction(ans);
 //        printAsApproxDecimalFraction(ans);
-        return Util.toByteArray(ans);
+        if (!lengthPrefix) {
+            return Util.toByteArray(ans);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, chars.length);
+        out.writeBytes(Util.toByteArray(ans));
+        return out.toByteArray();
     }
 
     /**
@@ -0,0 +1,147 @@
+package coding.ac;
+
+import coding.BitWriter;
+import coding.EncoderSession;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An AC encoder that accepts its input incrementally and writes the encoded bits
+ * to the output stream as soon as they are determined.
+ * Each flushed segment is terminated by the end-of-file symbol and padded to a whole byte,
+ * and the end of the stream is marked by an empty segment.
+ * Unlike ACEncoder, a segment is terminated with two bits chosen so that the segment
+ * decodes correctly no matter which bits follow it, so the decoder never needs to look past it.
+ */
+public class ACEncoderSession implements EncoderSession {
+    private final ProbModel probModel;
+    private final BitWriter out;
+    private double low = 0;
+    private double high = 1;
+    private int underflows = 0;
+    private boolean pending = false;  // whether characters have been written since the last flush
+    private boolean finished = false;
+
+    /**
+     * Creates an AC encoder session with the given probabilistic model that writes to out.
+     */
+    public ACEncoderSession(ProbModel probModel, OutputStream out) {
+        this.probModel = probModel;
+        this.out = new BitWriter(out);
+    }
+
+    /**
+     * Creates a session that writes straight to the given channel through a direct buffer.
+     */
+    public ACEncoderSession(ProbModel probModel, WritableByteChannel out) {
+        this.probModel = probModel;
+        this.out = new BitWriter(out);
+    }
+
+    @Override
+    public void write(char c) {
+        if (finished) {
+            throw new IllegalStateException("Session is already finished");
+        }
+        double[] probs = probModel.getProbs();
+        if (c >= probs.length) {
+            throw new IllegalArgumentException("Character " + c + " out of range of cumulative probabilities");
+        }
+        if ((c == 0 && probs[0] == 0) || (c > 0 && probs[c] == probs[c - 1])) {
+            throw new IllegalArgumentException("Character " + c + " is not supported since it has probability 0");
+        }
+        probModel.update(c);  // inform the probabilistic model that the next character is c
+        pending = true;
+
+        // shrink the range
+        if (c == 0) {
+            high = low + (high - low) * probs[0];
+        } else {
+            double newLow = low + (high - low) * probs[c - 1];
+            double newHigh = low + (high - low) * probs[c];
+            low = newLow;
+            high = newHigh;
+        }
+        renormalize();
+    }
+
+    @Override
+    public void flush() {
+        if (finished) {
+            throw new IllegalStateException("Session is already finished");
+        }
+        if (pending) {
+            endSegment();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        if (pending) {
+            endSegment();
+        }
+        endSegment();  // an empty segment marks the end of the stream
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Encodes the end-of-file symbol, terminates the segment, pads it to a whole byte,
+     * and starts the next segment from the full range [0, 1).
+     */
+    private void endSegment() {
+        double[] probs = probModel.getProbs();
+        low = low + (high - low) * probs[probs.length - 1];
+        renormalize();
+        // Now low < 0.5 < high, and either low < 0.25 or high > 0.75.
+        // Output the bits 01 or 10 for [0.25, 0.5) or [0.5, 0.75) respectively,
+        // which lies entirely in [low, high) whatever bits come after it.
+        // Counting the second bit as one more underflow outputs it right after the pending ones.
+        underflows++;
+        emit(low < 0.25 ? 0 : 1);
+        out.alignToByte();
+        low = 0;
+        high = 1;
+        underflows = 0;
+        pending = false;
+    }
+
+    /**
+     * If [low, high) completely lies in one half, output a bit and renormalize.
+     * If it completely lies in the middle half, i.e. [0.25, 0.75),
+     * scale it up and remember there was an underflow condition.
+     */
+    private void renormalize() {
+        while (high <= 0.5 || low >= 0.5 || (high <= 0.75 && low >= 0.25)) {
+            if (high <= 0.5) {
+                emit(0);
+                low *= 2;
+                high *= 2;
+            } else if (low >= 0.5) {
+                emit(1);
+                low = (low - 0.5) * 2;
+                high = (high - 0.5) * 2;
+            } else {
+                low = (low - 0.25) * 2;
+                high = (high - 0.25) * 2;
+                underflows++;
+            }
+        }
+    }
+
+    /**
+     * Output the bit followed by the opposite bit once for every pending underflow condition.
+     */
+    private void emit(int bit) {
+        out.writeBit(bit);
+        while (underflows > 0) {
+            out.writeBit(1 - bit);
+            underflows--;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package coding.ac;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An adaptive order-0 model over Unicode code points for UnicodeACEncoder and UnicodeACDecoder.
+ * Only code points that have been seen have a count, kept in a Fenwick tree,
+ * so the cost per character is O(log n) and memory is O(n) in the number n of distinct code points,
+ * regardless of the size of the alphabet.
+ * A code point that has not been seen is coded as an escape symbol followed by the code point itself,
+ * with a uniform distribution over the alphabet, and is then added to the model.
+ * The escape symbol gains count whenever it is used, so texts with many distinct code points escape cheaply.
+ */
+class AdaptiveCodePointModel {
+    static final int ESCAPE = 0;  // index of the escape symbol
+    static final int EOF = 1;  // index of the end-of-file symbol
+    private static final int INCREMENT = 32;
+    private static final long MAX_TOTAL = 1 << 22;  // halve the counts when the total gets larger than this
+
+    private final int alphabetSize;
+    private final FenwickTree counts = new FenwickTree();
+    private final Map<Integer, Integer> indexOf = new HashMap<>();  // code point -> index in counts
+    private int[] codePoints = new int[16];  // index in counts -> code point
+
+    /**
+     * Requires: 0 < alphabetSize <= IntegerACWriter.MAX_TOTAL
+     */
+    AdaptiveCodePointModel(int alphabetSize) {
+        assert 0 < alphabetSize && alphabetSize <= IntegerACWriter.MAX_TOTAL;
+        this.alphabetSize = alphabetSize;
+        counts.add(1);  // ESCAPE
+        counts.add(1);  // EOF
+    }
+
+    int alphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * @return the index of the code point, or -1 if it has not been seen
+     */
+    int indexOf(int codePoint) {
+        return indexOf.getOrDefault(codePoint, -1);
+    }
+
+    int codePointAt(int index) {
+        return codePoints[index];
+    }
+
+    long cumLow(int index) {
+        return counts.prefixSum(index);
+    }
+
+    long cumHigh(int index) {
+        return counts.prefixSum(index) + counts.get(index);
+    }
+
+    long total() {
+        return counts.total();
+    }
+
+    int find(long value) {
+        return counts.find(value);
+    }
+
+    /**
+     * Adds a code point that has not been seen and returns its index.
+     */
+    int addCodePoint(int codePoint) {
+        int index = counts.add(0);
+        if (index == codePoints.length) {
+            codePoints = Arrays.copyOf(codePoints, 2 * codePoints.length);
+        }
+        codePoints[index] = codePoint;
+        indexOf.put(codePoint, index);
+        return index;
+    }
+
+    /**
+     * Updates the model given that the symbol at index was coded.
+     */
+    void update(int index) {
+        counts.increment(index, index == ESCAPE ? INCREMENT / 4 : INCREMENT);
+        if (counts.total() > MAX_TOTAL) {
+            counts.halve();
+        }
+    }
+}
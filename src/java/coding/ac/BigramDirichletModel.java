@@ -1,5 +1,7 @@
 package coding.ac;
 
+import java.util.Arrays;
+
 /**
  * Bigram Dirichlet model: frequencies are updated based on what the previous symbol is.
  * Each character c has a frequency array indicating the frequency of seeing the next character
@@ -11,6 +13,8 @@ public class BigramDirichletModel implements ProbModel {
     private final double alpha;
     // freqs[c] is the frequency array conditioned on the previous character being c
     private final int[][] freqs;
+    // ownsRow[c] is false while freqs[c] is still shared with the prior counts of a pre-trained model
+    private final boolean[] ownsRow;
     private final int[] charsSeen;  // number of characters already seen
     private char prevChar = Character.MAX_VALUE;  // placeholder value when we haven't seen a previous character
 
@@ -25,11 +29,39 @@ public class BigramDirichletModel implements ProbModel {
         this.alpha = alpha;
         freqs = new int[128][128];
         charsSeen = new int[128];
+        ownsRow = new boolean[128];
+        Arrays.fill(ownsRow, true);
+    }
+
+    /**
+     * Creates a pre-trained bigram model that starts from the given counts instead of from zero,
+     * where priorFreqs[p][c] is the number of times c followed p.
+     * The rows of priorFreqs are shared until this model first updates them (copy-on-write),
+     * so many models can be created from one set of prior counts cheaply.
+     * Requires: priorFreqs is 128 x 128 and is never modified by the caller afterwards.
+     */
+    public BigramDirichletModel(double alpha, int[][] priorFreqs) {
+        assert priorFreqs.length == 128;
+        this.alpha = alpha;
+        freqs = new int[128][];
+        charsSeen = new int[128];
+        ownsRow = new boolean[128];
+        for (int p = 0; p < 128; p++) {
+            assert priorFreqs[p].length == 128;
+            freqs[p] = priorFreqs[p];
+            for (int f : priorFreqs[p]) {
+                charsSeen[p] += f;
+            }
+        }
     }
 
     @Override
     public void update(char c) {
         if (prevChar != Character.MAX_VALUE) {
+            if (!ownsRow[prevChar]) {
+                freqs[prevChar] = freqs[prevChar].clone();
+                ownsRow[prevChar] = true;
+            }
             freqs[prevChar][c]++;
             charsSeen[prevChar]++;
         }
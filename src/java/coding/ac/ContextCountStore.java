@@ -0,0 +1,226 @@
+package coding.ac;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * A hash table from contexts (long keys) to rows of character counts that lives off the Java heap,
+ * in a direct ByteBuffer, so that models with many contexts don't fill the heap with arrays for the GC to scan.
+ * A model finds the row of its current context with one lookup and then reads the count of every character from it.
+ * <p>
+ * The table uses open addressing: a context lives in one of the PROBE_LENGTH slots starting at its hash.
+ * Each slot holds the context (8 bytes), the total of its row (4 bytes) and a 16-bit count for each of the 128
+ * characters, and a total of 0 marks an empty slot. When a count would overflow, every count of the row is halved.
+ * The table starts small and doubles when it is three quarters full, but never grows past its memory budget.
+ * When a new context then finds all of its slots taken, it replaces the context with the smallest total
+ * among them (the first one on ties).
+ * Growth and replacement depend only on the sequence of increments, so an encoder and a decoder
+ * that make the same increments to stores with the same budget always hold the same counts.
+ */
+public class ContextCountStore {
+    public static final long DEFAULT_MEMORY_BUDGET = 1 << 23;  // 8 MB
+    public static final int ALPHABET_SIZE = 128;
+    private static final int SLOT_BYTES = 8 + 4 + 2 * ALPHABET_SIZE;
+    private static final int PROBE_LENGTH = 8;
+    private static final int INITIAL_SLOTS = 64;
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final int maxSlots;
+    private ByteBuffer table;
+    private CharBuffer chars;  // a view of table, to read whole rows of counts at once
+    private int mask;  // number of slots - 1
+    private int size = 0;
+    private long replacements = 0;
+
+    /**
+     * Creates an empty store that uses at most memoryBudget bytes.
+     * The table grows to the largest power of two number of slots that fits.
+     * Requires: PROBE_LENGTH * (12 + 2 * ALPHABET_SIZE) <= memoryBudget <= Integer.MAX_VALUE
+     */
+    public ContextCountStore(long memoryBudget) {
+        assert (long) PROBE_LENGTH * SLOT_BYTES <= memoryBudget && memoryBudget <= Integer.MAX_VALUE;
+        maxSlots = Integer.highestOneBit((int) (memoryBudget / SLOT_BYTES));
+        allocate(Math.min(INITIAL_SLOTS, maxSlots));
+    }
+
+    public ContextCountStore() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    private void allocate(int slots) {
+        table = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        chars = table.asCharBuffer();
+        mask = slots - 1;
+    }
+
+    /**
+     * @return the slot of the row of context, or -1 if it is not in the store
+     */
+    public int find(long context) {
+        int slot = hash(context);
+        for (int i = 0; i < PROBE_LENGTH; i++, slot = (slot + 1) & mask) {
+            if (total(slot) == 0) {
+                return -1;  // slots are never emptied, so the context can't be further along
+            }
+            if (key(slot) == context) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the sum of the counts of the row in the given slot, as returned by find
+     */
+    public int total(int slot) {
+        return table.getInt(slot * SLOT_BYTES + 8);
+    }
+
+    /**
+     * @return the count of c in the row in the given slot, as returned by find
+     */
+    public int count(int slot, char c) {
+        return table.getChar(slot * SLOT_BYTES + 12 + 2 * c);
+    }
+
+    /**
+     * Copies the counts of the row in the given slot, as returned by find, into counts.
+     * Requires: counts.length == ALPHABET_SIZE
+     */
+    public void readRow(int slot, char[] counts) {
+        chars.get((slot * SLOT_BYTES + 12) / 2, counts);
+    }
+
+    /**
+     * @return the count of c after context, or 0 if context is not in the store
+     */
+    public int get(long context, char c) {
+        int slot = find(context);
+        return slot < 0 ? 0 : count(slot, c);
+    }
+
+    /**
+     * Adds one to the count of c after context, inserting the context (and possibly replacing another one)
+     * if it is not in the store.
+     * Requires: c < ALPHABET_SIZE
+     */
+    public void increment(long context, char c) {
+        int slot = findOrInsert(context);
+        int base = slot * SLOT_BYTES;
+        int count = table.getChar(base + 12 + 2 * c);
+        if (count == MAX_COUNT) {
+            int total = 0;
+            for (int i = 0; i < ALPHABET_SIZE; i++) {
+                int halved = table.getChar(base + 12 + 2 * i) / 2;
+                table.putChar(base + 12 + 2 * i, (char) halved);
+                total += halved;
+            }
+            table.putInt(base + 8, total);
+            count /= 2;
+        }
+        table.putChar(base + 12 + 2 * c, (char) (count + 1));
+        table.putInt(base + 8, total(slot) + 1);
+    }
+
+    /**
+     * @return the slot of the row of context, with an empty row if it was not in the store
+     */
+    private int findOrInsert(long context) {
+        if (size >= (mask + 1) / 4 * 3 && mask + 1 < maxSlots) {
+            grow();
+        }
+        int slot = hash(context);
+        int victim = slot;
+        int victimTotal = Integer.MAX_VALUE;
+        for (int i = 0; i < PROBE_LENGTH; i++, slot = (slot + 1) & mask) {
+            int total = total(slot);
+            if (total == 0) {
+                table.putLong(slot * SLOT_BYTES, context);
+                size++;
+                return slot;
+            }
+            if (key(slot) == context) {
+                return slot;
+            }
+            if (total < victimTotal) {
+                victim = slot;
+                victimTotal = total;
+            }
+        }
+        int base = victim * SLOT_BYTES;
+        table.putLong(base, context);
+        for (int i = 8; i < SLOT_BYTES; i += 4) {
+            table.putInt(base + i, 0);
+        }
+        replacements++;
+        return victim;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every row in slot order.
+     * A row that finds all of its slots taken in the new table is dropped.
+     */
+    private void grow() {
+        ByteBuffer old = table;
+        int oldSlots = mask + 1;
+        allocate(2 * oldSlots);
+        size = 0;
+        for (int s = 0; s < oldSlots; s++) {
+            int oldBase = s * SLOT_BYTES;
+            if (old.getInt(oldBase + 8) == 0) {
+                continue;
+            }
+            int slot = hash(old.getLong(oldBase));
+            for (int i = 0; i < PROBE_LENGTH; i++, slot = (slot + 1) & mask) {
+                if (total(slot) == 0) {
+                    table.put(slot * SLOT_BYTES, old, oldBase, SLOT_BYTES);
+                    size++;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of contexts in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the maximum number of contexts the store can hold
+     */
+    public int capacity() {
+        return maxSlots;
+    }
+
+    /**
+     * @return the number of times a context was replaced by a new context
+     */
+    public long replacements() {
+        return replacements;
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory used by the table
+     */
+    public long memoryUsed() {
+        return table.capacity();
+    }
+
+    private long key(int slot) {
+        return table.getLong(slot * SLOT_BYTES);
+    }
+
+    private int hash(long key) {
+        // finalizer of MurmurHash3, so that similar contexts are spread over the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,82 @@
+package coding.ac;
+
+import java.util.Arrays;
+
+/**
+ * An order-k context model: the probabilities of the next character depend on the previous k characters,
+ * generalizing BigramDirichletModel (k = 1) to longer contexts.
+ * The counts are kept in a ContextCountStore with one row per context, so only contexts that have been seen
+ * take up memory, that memory is off the heap and bounded, and each character costs one lookup.
+ * <p>
+ * Most long contexts are rare, so instead of a uniform prior, each context starts from the order-0 distribution:
+ * P(c | context) = (n(context, c) + alpha * P0(c)) / (n(context) + alpha),
+ * where P0 is a Laplace model of the characters seen so far.
+ * Before k characters have been read, the context is padded with NUL characters.
+ */
+public class ContextModel implements ProbModel {
+    public static final int MAX_ORDER = 7;
+    private static final int ALPHABET_SIZE = 128;
+
+    private final int order;
+    private final double alpha;
+    private final ContextCountStore store;
+    private final long contextMask;
+    private final int[] order0Freqs = new int[ALPHABET_SIZE];
+    private final char[] counts = new char[ALPHABET_SIZE];  // scratch for the row of the current context
+    private int charsSeen = 0;
+    private long context = 0;  // the previous order characters, 7 bits each
+
+    /**
+     * Creates an order-k model whose counts are kept in store.
+     * Requires: 1 <= order <= MAX_ORDER, alpha > 0,
+     * and store is empty and not shared with any other model.
+     */
+    public ContextModel(int order, double alpha, ContextCountStore store) {
+        assert 1 <= order && order <= MAX_ORDER && alpha > 0;
+        this.order = order;
+        this.alpha = alpha;
+        this.store = store;
+        contextMask = (1L << (7 * order)) - 1;
+    }
+
+    /**
+     * Creates an order-k model with a store of the default memory budget.
+     */
+    public ContextModel(int order, double alpha) {
+        this(order, alpha, new ContextCountStore());
+    }
+
+    /**
+     * @return the order of the model, that is, the number of previous characters it conditions on
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public void update(char c) {
+        store.increment(context, c);
+        order0Freqs[c]++;
+        charsSeen++;
+        context = ((context << 7) | c) & contextMask;
+    }
+
+    @Override
+    public double[] getProbs() {
+        int slot = store.find(context);
+        if (slot < 0) {
+            Arrays.fill(counts, (char) 0);  // a new context
+        } else {
+            store.readRow(slot, counts);
+        }
+        double order0Weight = alpha / (charsSeen + ALPHABET_SIZE + 1);  // end-of-file definitely has not appeared yet
+        double scale = 1 / ((slot < 0 ? 0 : store.total(slot)) + alpha);
+        double[] probs = new double[ALPHABET_SIZE];
+        double runningSum = 0;
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            runningSum += counts[c] + order0Weight * (order0Freqs[c] + 1);
+            probs[c] = runningSum * scale;
+        }
+        return probs;
+    }
+}
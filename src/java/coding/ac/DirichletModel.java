@@ -21,6 +21,20 @@ public class DirichletModel implements ProbModel {
         freqs = new int[128];
     }
 
+    /**
+     * Creates a pre-trained Dirichlet model that starts from the given character counts
+     * instead of from zero.
+     * Requires: priorFreqs.length == 128. priorFreqs is copied, not modified.
+     */
+    public DirichletModel(double alpha, int[] priorFreqs) {
+        assert priorFreqs.length == 128;
+        this.alpha = alpha;
+        freqs = priorFreqs.clone();
+        for (int f : freqs) {
+            charsSeen += f;
+        }
+    }
+
     @Override
     public void update(char c) {
         freqs[c]++;
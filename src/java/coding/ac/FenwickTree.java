@@ -0,0 +1,119 @@
+package coding.ac;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree (binary indexed tree) of nonnegative counts that supports updating a count,
+ * prefix sums and finding the index whose cumulative range contains a value, each in O(log n),
+ * so models with large alphabets don't need a pass over every symbol per character.
+ * It grows as indices are added, so memory is proportional to the number of indices in use.
+ */
+public class FenwickTree {
+    private int[] counts;
+    private int[] tree;  // tree[i] is the sum of counts[i - lowbit(i) .. i - 1] (1-indexed)
+    private int size;
+    private long total;
+
+    public FenwickTree() {
+        counts = new int[16];
+        tree = new int[counts.length + 1];
+    }
+
+    /**
+     * @return the number of indices in use
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the sum of all counts
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Appends a new index with the given count and returns it.
+     * Requires: count >= 0
+     */
+    public int add(int count) {
+        if (size == counts.length) {
+            counts = Arrays.copyOf(counts, 2 * counts.length);
+            rebuild();
+        }
+        size++;
+        increment(size - 1, count);
+        return size - 1;
+    }
+
+    /**
+     * @return the count at index i
+     */
+    public int get(int i) {
+        return counts[i];
+    }
+
+    /**
+     * Adds delta to the count at index i.
+     * Requires: 0 <= i < size() and the count stays nonnegative
+     */
+    public void increment(int i, int delta) {
+        assert 0 <= i && i < size && counts[i] + delta >= 0;
+        counts[i] += delta;
+        total += delta;
+        for (int j = i + 1; j < tree.length; j += j & -j) {
+            tree[j] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of the counts at indices 0 to i - 1
+     */
+    public long prefixSum(int i) {
+        long sum = 0;
+        for (int j = i; j > 0; j -= j & -j) {
+            sum += tree[j];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the index i such that prefixSum(i) <= value < prefixSum(i + 1)
+     * Requires: 0 <= value < total()
+     */
+    public int find(long value) {
+        assert 0 <= value && value < total;
+        int i = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            if (i + step < tree.length && tree[i + step] <= value) {
+                i += step;
+                value -= tree[i];
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Halves every count, rounding up so that nonzero counts stay nonzero.
+     */
+    public void halve() {
+        total = 0;
+        for (int i = 0; i < size; i++) {
+            counts[i] = (counts[i] + 1) / 2;
+            total += counts[i];
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        tree = new int[counts.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
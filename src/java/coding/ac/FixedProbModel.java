@@ -4,6 +4,8 @@ package coding.ac;
  * A probability model where the probability of each character is fixed,
  * regardless of what the context (previous characters) is.
  * In other words, P(x_n = c | x_1, x_2, ..., x_{n - 1}) = p_c.
+ * Since it has no internal state, a single instance is immutable and can be shared
+ * by any number of encoders and decoders, including across threads.
  */
 public class FixedProbModel implements ProbModel {
     private final double[] probs;  // cumulative probabilities
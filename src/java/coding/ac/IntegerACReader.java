@@ -0,0 +1,72 @@
+package coding.ac;
+
+import static coding.ac.IntegerACWriter.*;
+
+/**
+ * Decodes the output of IntegerACWriter from a byte array.
+ * For each symbol, target(total) tells which value of [0, total) the encoded number falls on,
+ * the caller maps that value to a symbol, and consume(...) moves past the symbol.
+ */
+public class IntegerACReader {
+    private final byte[] bytes;
+    private long nextBit;  // index of the next bit to bring in
+    private long low = 0;
+    private long high = FULL;  // inclusive
+    private long value = 0;  // the 32 bits of the encoded number at the current scale
+
+    /**
+     * Creates a reader for the encoded bits starting at the given byte offset.
+     * Bits after the end of the array are taken to be 0.
+     */
+    public IntegerACReader(byte[] bytes, int offset) {
+        this.bytes = bytes;
+        this.nextBit = offset * 8L;
+        for (int i = 0; i < 32; i++) {
+            value = 2 * value + readBit();
+        }
+    }
+
+    /**
+     * @return the value in [0, total) whose symbol range contains the encoded number
+     */
+    public long target(long total) {
+        long range = high - low + 1;
+        return ((value - low + 1) * total - 1) / range;
+    }
+
+    /**
+     * Moves past the symbol whose range is [cumLow, cumHigh) out of total.
+     * Requires: target(total) is in [cumLow, cumHigh)
+     */
+    public void consume(long cumLow, long cumHigh, long total) {
+        long range = high - low + 1;
+        high = low + range * cumHigh / total - 1;
+        low = low + range * cumLow / total;
+        while (true) {
+            if (high < HALF) {
+                // nothing to subtract
+            } else if (low >= HALF) {
+                low -= HALF;
+                high -= HALF;
+                value -= HALF;
+            } else if (low >= QUARTER && high < HALF + QUARTER) {
+                low -= QUARTER;
+                high -= QUARTER;
+                value -= QUARTER;
+            } else {
+                break;
+            }
+            low = 2 * low;
+            high = 2 * high + 1;
+            value = 2 * value + readBit();
+        }
+    }
+
+    private int readBit() {
+        long i = nextBit++;
+        if (i >= bytes.length * 8L) {
+            return 0;
+        }
+        return (bytes[(int) (i / 8)] >> (7 - i % 8)) & 1;
+    }
+}
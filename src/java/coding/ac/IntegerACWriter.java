@@ -0,0 +1,78 @@
+package coding.ac;
+
+import coding.BitWriter;
+
+/**
+ * The interval arithmetic of AC encoding done with 32-bit integers instead of doubles,
+ * for models that describe each symbol by an integer range [cumLow, cumHigh) of a total frequency.
+ * It uses the same renormalization and underflow handling as ACEncoder,
+ * but since the arithmetic is exact, the decoder (IntegerACReader) never needs more than 32 bits of lookahead.
+ */
+public class IntegerACWriter {
+    static final long FULL = (1L << 32) - 1;
+    static final long HALF = 1L << 31;
+    static final long QUARTER = 1L << 30;
+    /**
+     * The largest supported total frequency. With this bound every symbol with a nonzero frequency
+     * is given a nonempty range, since the range [low, high] always holds more than QUARTER values.
+     */
+    public static final long MAX_TOTAL = 1L << 29;
+
+    private final BitWriter out;
+    private long low = 0;
+    private long high = FULL;  // inclusive
+    private int underflows = 0;
+
+    public IntegerACWriter(BitWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Encodes a symbol whose range is [cumLow, cumHigh) out of total.
+     * Requires: 0 <= cumLow < cumHigh <= total <= MAX_TOTAL
+     */
+    public void encode(long cumLow, long cumHigh, long total) {
+        assert 0 <= cumLow && cumLow < cumHigh && cumHigh <= total && total <= MAX_TOTAL;
+        long range = high - low + 1;
+        high = low + range * cumHigh / total - 1;
+        low = low + range * cumLow / total;
+        while (true) {
+            if (high < HALF) {
+                emit(0);
+            } else if (low >= HALF) {
+                emit(1);
+                low -= HALF;
+                high -= HALF;
+            } else if (low >= QUARTER && high < HALF + QUARTER) {
+                underflows++;
+                low -= QUARTER;
+                high -= QUARTER;
+            } else {
+                break;
+            }
+            low = 2 * low;
+            high = 2 * high + 1;
+        }
+    }
+
+    /**
+     * Outputs the last bits: [low, high] contains either [QUARTER, HALF) or [HALF, HALF + QUARTER),
+     * so two more bits (plus the pending underflow bits) determine the encoded number
+     * regardless of what follows them.
+     */
+    public void finish() {
+        underflows++;
+        emit(low < QUARTER ? 0 : 1);
+    }
+
+    /**
+     * Output the bit followed by the opposite bit once for every pending underflow condition.
+     */
+    private void emit(int bit) {
+        out.writeBit(bit);
+        while (underflows > 0) {
+            out.writeBit(1 - bit);
+            underflows--;
+        }
+    }
+}
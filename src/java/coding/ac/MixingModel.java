@@ -0,0 +1,121 @@
+package coding.ac;
+
+import java.util.Arrays;
+
+/**
+ * A model that runs several sub-models side by side and blends their predictions,
+ * so we don't have to pick one model up front.
+ * The blended distribution is the weighted average sum_i w_i * P_i of the sub-model distributions.
+ * After each character c, every weight is multiplied by P_i(c)^learningRate and the weights are renormalized,
+ * so models that predicted recent characters well gain weight (with learningRate = 1, this is Bayesian model averaging).
+ * Each weight is kept above a small floor so that a model can recover when the input changes.
+ * Since averaging is linear, the cumulative probabilities of the mixture are the weighted average
+ * of the cumulative probabilities of the sub-models, which costs one pass over each sub-model's array.
+ */
+public class MixingModel implements ProbModel {
+    private static final double DEFAULT_LEARNING_RATE = 1.0;
+    private static final double WEIGHT_FLOOR = 0.01;  // relative to a uniform weight
+
+    private final ProbModel[] models;
+    private final double learningRate;
+    private final double[] weights;  // sums to 1
+    private final double[][] lastProbs;  // cumulative probabilities of each sub-model for the next character
+    private double[] mixed;  // returned by getProbs, refilled on every call
+    private boolean lastProbsValid = false;
+
+    /**
+     * Creates a mixture of the given models, starting with equal weights.
+     * Requires: models is not empty and no model is shared with another encoder or decoder.
+     */
+    public MixingModel(ProbModel... models) {
+        this(DEFAULT_LEARNING_RATE, models);
+    }
+
+    /**
+     * Creates a mixture of the given models, starting with equal weights.
+     * A learning rate below 1 makes the weights change more slowly.
+     * Requires: models is not empty, learningRate > 0,
+     * and no model is shared with another encoder or decoder.
+     */
+    public MixingModel(double learningRate, ProbModel... models) {
+        assert models.length > 0 && learningRate > 0;
+        this.models = models.clone();
+        this.learningRate = learningRate;
+        weights = new double[models.length];
+        Arrays.fill(weights, 1.0 / models.length);
+        lastProbs = new double[models.length][];
+    }
+
+    /**
+     * @return a copy of the current weight of each sub-model
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    private void computeLastProbs() {
+        if (!lastProbsValid) {
+            for (int i = 0; i < models.length; i++) {
+                lastProbs[i] = models[i].getProbs();
+            }
+            lastProbsValid = true;
+        }
+    }
+
+    @Override
+    public void update(char c) {
+        computeLastProbs();
+        double sum = 0;
+        for (int i = 0; i < models.length; i++) {
+            double[] probs = lastProbs[i];
+            double p = probs[c] - (c == 0 ? 0 : probs[c - 1]);
+            weights[i] *= learningRate == 1 ? p : Math.pow(p, learningRate);
+            sum += weights[i];
+        }
+        double floor = WEIGHT_FLOOR / models.length;
+        if (sum > 0) {
+            double floored = 0;
+            for (int i = 0; i < models.length; i++) {
+                weights[i] = Math.max(weights[i] / sum, floor);
+                floored += weights[i];
+            }
+            for (int i = 0; i < models.length; i++) {
+                weights[i] /= floored;
+            }
+        } else {
+            // no model gave c any probability, so there is no evidence either way
+            Arrays.fill(weights, 1.0 / models.length);
+        }
+        for (ProbModel model : models) {
+            model.update(c);
+        }
+        lastProbsValid = false;
+    }
+
+    /**
+     * To save an allocation per character, the returned array is reused and overwritten by the next call.
+     * Callers may still modify it, since every call recomputes it from the sub-models.
+     */
+    @Override
+    public double[] getProbs() {
+        computeLastProbs();
+        if (mixed == null || mixed.length != lastProbs[0].length) {
+            mixed = new double[lastProbs[0].length];
+        }
+        double[] probs = mixed;
+        double w0 = weights[0];
+        double[] first = lastProbs[0];
+        for (int c = 0; c < probs.length; c++) {
+            probs[c] = w0 * first[c];
+        }
+        for (int i = 1; i < models.length; i++) {
+            double w = weights[i];
+            double[] modelProbs = lastProbs[i];
+            assert modelProbs.length == probs.length;
+            for (int c = 0; c < probs.length; c++) {
+                probs[c] += w * modelProbs[c];
+            }
+        }
+        return probs;
+    }
+}
@@ -0,0 +1,190 @@
+package coding.ac;
+
+import coding.Util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Integer symbol frequencies that sum to a power of two, 2^precision,
+ * for the 128 ASCII characters and the end-of-file symbol 128.
+ * The frequencies are fitted to the text by counting, so they can be stored compactly in a header,
+ * and a slot table maps every value in [0, 2^precision) straight to the symbol
+ * whose cumulative frequency range contains it, so decoding needs no search.
+ * Instances are immutable.
+ */
+public class QuantizedFreqTable {
+    public static final int DEFAULT_PRECISION = 12;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final int[] freqs;  // freqs[c] is the quantized frequency of c
+    private final int[] cumFreqs;  // cumFreqs[c] is the sum of freqs[0..c - 1], cumFreqs[129] == 2^precision
+    private final char[] slots;  // slots[v] is the symbol whose cumulative frequency range contains v
+
+    /**
+     * Creates a table from quantized frequencies.
+     * Requires: freqs.length == 129, freqs[128] > 0, precision <= MAX_PRECISION,
+     * and the frequencies sum to 2^precision.
+     */
+    public QuantizedFreqTable(int[] freqs, int precision) {
+        assert freqs.length == 129 && freqs[128] > 0 && precision <= MAX_PRECISION;
+        this.precision = precision;
+        this.freqs = freqs.clone();
+        this.cumFreqs = new int[130];
+        this.slots = new char[1 << precision];
+        for (char c = 0; c < 129; c++) {
+            cumFreqs[c + 1] = cumFreqs[c] + freqs[c];
+            for (int v = cumFreqs[c]; v < cumFreqs[c + 1]; v++) {
+                slots[v] = c;
+            }
+        }
+        assert cumFreqs[129] == 1 << precision;
+    }
+
+    /**
+     * Creates a table fitted to the given character counts, as returned by Util.countFreqs.
+     */
+    public static QuantizedFreqTable fromCounts(int[] counts, int precision) {
+        return new QuantizedFreqTable(quantize(counts, precision), precision);
+    }
+
+    /**
+     * Scales the counts so that they sum to exactly 2^precision,
+     * keeping every nonzero count nonzero.
+     * Requires: counts.length == 129 and counts[128] > 0
+     * @throws IllegalArgumentException if precision is not between 1 and MAX_PRECISION,
+     * or there are more nonzero counts than 2^precision
+     */
+    public static int[] quantize(int[] counts, int precision) {
+        checkPrecision(precision);
+        int total = 1 << precision;
+        long sum = 0;
+        int used = 0;
+        for (int count : counts) {
+            sum += count;
+            if (count > 0) {
+                used++;
+            }
+        }
+        if (used > total) {
+            throw new IllegalArgumentException(used + " symbols do not fit in a precision of " + precision + " bits");
+        }
+        int[] freqs = new int[counts.length];
+        int quantizedSum = 0;
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) {
+                freqs[c] = (int) Math.max(1, Math.round((double) counts[c] * total / sum));
+                quantizedSum += freqs[c];
+            }
+        }
+        // Rounding may overshoot or undershoot the total: fix this on the most frequent symbols,
+        // where the relative change (and thus the cost in bits) is the smallest.
+        // While the sum is above the total, which is at least the number of symbols,
+        // the largest frequency is at least 2, so every step makes progress.
+        while (quantizedSum != total) {
+            int largest = 0;
+            for (int c = 1; c < freqs.length; c++) {
+                if (freqs[c] > freqs[largest]) {
+                    largest = c;
+                }
+            }
+            if (quantizedSum < total) {
+                freqs[largest] += total - quantizedSum;
+                quantizedSum = total;
+            } else {
+                int delta = Math.min(quantizedSum - total, freqs[largest] / 2);
+                freqs[largest] -= delta;
+                quantizedSum -= delta;
+            }
+        }
+        return freqs;
+    }
+
+    /**
+     * @throws IllegalArgumentException if precision is not between 1 and MAX_PRECISION
+     */
+    static void checkPrecision(long precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision " + precision + " is not between 1 and " + MAX_PRECISION);
+        }
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the frequency of c (0-128, where 128 is end-of-file)
+     */
+    public int freq(char c) {
+        return freqs[c];
+    }
+
+    /**
+     * @return the sum of the frequencies of all symbols before c
+     */
+    public int cumFreq(char c) {
+        return cumFreqs[c];
+    }
+
+    /**
+     * @return the symbol (0-128, where 128 is end-of-file) whose cumulative frequency range
+     * contains the given value
+     * Requires: 0 <= value < 2^precision
+     */
+    public char symbolAt(int value) {
+        return slots[value];
+    }
+
+    /**
+     * Writes the table compactly: the precision, a bitmap of the symbols with nonzero frequencies,
+     * then the frequency of each of those symbols minus one as a varint.
+     */
+    public void writeHeader(OutputStream out) {
+        Util.writeVarint(out, precision);
+        byte[] bitmap = new byte[(freqs.length + 7) / 8];
+        for (int c = 0; c < freqs.length; c++) {
+            if (freqs[c] > 0) {
+                bitmap[c / 8] |= (byte) (1 << (7 - c % 8));
+            }
+        }
+        try {
+            out.write(bitmap);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (int freq : freqs) {
+            if (freq > 0) {
+                Util.writeVarint(out, freq - 1);
+            }
+        }
+    }
+
+    /**
+     * Reads a table written by writeHeader from the current position of the buffer.
+     * @throws IllegalArgumentException if the table is invalid
+     */
+    public static QuantizedFreqTable readHeader(ByteBuffer in) {
+        long precisionBits = Util.readVarint(in);
+        checkPrecision(precisionBits);
+        int precision = (int) precisionBits;
+        byte[] bitmap = new byte[(129 + 7) / 8];
+        in.get(bitmap);
+        int[] freqs = new int[129];
+        for (int c = 0; c < freqs.length; c++) {
+            if (((bitmap[c / 8] >> (7 - c % 8)) & 1) == 1) {
+                freqs[c] = (int) Util.readVarint(in) + 1;
+            }
+        }
+        long sum = 0;
+        for (int freq : freqs) {
+            sum += freq;
+        }
+        if (freqs[128] == 0 || sum != 1 << precision) {
+            throw new IllegalArgumentException("Invalid frequency table");
+        }
+        return new QuantizedFreqTable(freqs, precision);
+    }
+}
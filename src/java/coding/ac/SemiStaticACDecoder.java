@@ -0,0 +1,30 @@
+package coding.ac;
+
+import coding.AbstractDecoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the output of SemiStaticACEncoder.
+ * Instead of checking the range of every character in turn like ACDecoder,
+ * it maps the encoded number straight to its symbol through the slot table of the frequencies.
+ */
+public class SemiStaticACDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        QuantizedFreqTable table = QuantizedFreqTable.readHeader(in);
+        IntegerACReader reader = new IntegerACReader(bytes, in.position());
+        long total = 1L << table.getPrecision();
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = table.symbolAt((int) reader.target(total));
+            if (c == 128) {
+                // end of file
+                return sb.toString();
+            }
+            sb.append(c);
+            reader.consume(table.cumFreq(c), table.cumFreq(c) + table.freq(c), total);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package coding.ac;
+
+import coding.AbstractEncoder;
+import coding.BitWriter;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A two-pass AC encoder: it first counts the character frequencies of the text,
+ * quantizes them to a power-of-two total (see QuantizedFreqTable) and writes them in a header,
+ * then encodes the text with exactly those frequencies.
+ * Since the frequencies fit the text, this gets close to the order-0 entropy on stationary data,
+ * and the decoder (SemiStaticACDecoder) can look up each symbol in a slot table instead of searching.
+ * The encoding uses the exact integer arithmetic of IntegerACWriter, since a fixed model fitted
+ * to the text can create ranges that the double arithmetic of ACEncoder cannot resolve.
+ */
+public class SemiStaticACEncoder extends AbstractEncoder {
+    private final int precision;
+
+    /**
+     * Creates an encoder that quantizes the frequencies to a total of 2^precision.
+     * Texts with more distinct characters (plus end-of-file) than 2^precision cannot be encoded.
+     * @throws IllegalArgumentException if precision is not between 1 and QuantizedFreqTable.MAX_PRECISION
+     */
+    public SemiStaticACEncoder(int precision) {
+        QuantizedFreqTable.checkPrecision(precision);
+        this.precision = precision;
+    }
+
+    /**
+     * The default constructor quantizes the frequencies to a total of 2^12.
+     */
+    public SemiStaticACEncoder() {
+        this(QuantizedFreqTable.DEFAULT_PRECISION);
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        for (char c : text.toCharArray()) {
+            if (c >= 128) {
+                // checked before counting, which would take 128 for the end-of-file symbol and fail on larger characters
+                throw new IllegalArgumentException("Character " + c + " is not supported");
+            }
+        }
+        QuantizedFreqTable table = QuantizedFreqTable.fromCounts(Util.countFreqs(text), precision);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.writeHeader(out);
+        BitWriter bits = new BitWriter(out);
+        IntegerACWriter writer = new IntegerACWriter(bits);
+        long total = 1L << precision;
+        for (char c : text.toCharArray()) {
+            if (table.freq(c) == 0) {
+                throw new IllegalArgumentException("Character " + c + " is not supported");
+            }
+            writer.encode(table.cumFreq(c), table.cumFreq(c) + table.freq(c), total);
+        }
+        writer.encode(table.cumFreq((char) 128), total, total);  // end-of-file symbol
+        writer.finish();
+        bits.alignToByte();
+        bits.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package coding.ac;
+
+import coding.AbstractDecoder;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the output of UnicodeACEncoder.
+ */
+public class UnicodeACDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long alphabetSize = Util.readVarint(in);
+        if (alphabetSize <= 0 || alphabetSize > Character.MAX_CODE_POINT + 1) {
+            throw new IllegalArgumentException("Invalid alphabet size " + alphabetSize);
+        }
+        AdaptiveCodePointModel model = new AdaptiveCodePointModel((int) alphabetSize);
+        IntegerACReader reader = new IntegerACReader(bytes, in.position());
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int index = model.find(reader.target(model.total()));
+            reader.consume(model.cumLow(index), model.cumHigh(index), model.total());
+            if (index == AdaptiveCodePointModel.EOF) {
+                return sb.toString();
+            }
+            if (index == AdaptiveCodePointModel.ESCAPE) {
+                model.update(AdaptiveCodePointModel.ESCAPE);
+                int codePoint = (int) reader.target(alphabetSize);
+                reader.consume(codePoint, codePoint + 1, alphabetSize);
+                index = model.addCodePoint(codePoint);
+            }
+            sb.appendCodePoint(model.codePointAt(index));
+            model.update(index);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package coding.ac;
+
+import coding.AbstractEncoder;
+import coding.BitWriter;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * An adaptive AC encoder for text over any alphabet of Unicode code points, not just ASCII.
+ * It uses AdaptiveCodePointModel, whose cost per character doesn't grow with the alphabet,
+ * and the exact integer arithmetic of IntegerACWriter.
+ * The output starts with the alphabet size as a varint, so the decoder doesn't need to be told.
+ */
+public class UnicodeACEncoder extends AbstractEncoder {
+    private final int alphabetSize;
+
+    /**
+     * Creates an encoder for texts whose code points are less than alphabetSize.
+     * Requires: 0 < alphabetSize <= Character.MAX_CODE_POINT + 1
+     */
+    public UnicodeACEncoder(int alphabetSize) {
+        assert 0 < alphabetSize && alphabetSize <= Character.MAX_CODE_POINT + 1;
+        this.alphabetSize = alphabetSize;
+    }
+
+    /**
+     * The default constructor supports every Unicode code point.
+     */
+    public UnicodeACEncoder() {
+        this(Character.MAX_CODE_POINT + 1);
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        AdaptiveCodePointModel model = new AdaptiveCodePointModel(alphabetSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, alphabetSize);
+        BitWriter bits = new BitWriter(out);
+        IntegerACWriter writer = new IntegerACWriter(bits);
+        text.codePoints().forEach(codePoint -> {
+            if (codePoint >= alphabetSize) {
+                throw new IllegalArgumentException("Code point " + codePoint + " is outside of the alphabet");
+            }
+            int index = model.indexOf(codePoint);
+            if (index == -1) {
+                writer.encode(model.cumLow(AdaptiveCodePointModel.ESCAPE),
+                        model.cumHigh(AdaptiveCodePointModel.ESCAPE), model.total());
+                model.update(AdaptiveCodePointModel.ESCAPE);
+                writer.encode(codePoint, codePoint + 1, alphabetSize);
+                index = model.addCodePoint(codePoint);
+            } else {
+                writer.encode(model.cumLow(index), model.cumHigh(index), model.total());
+            }
+            model.update(index);
+        });
+        writer.encode(model.cumLow(AdaptiveCodePointModel.EOF), model.cumHigh(AdaptiveCodePointModel.EOF), model.total());
+        writer.finish();
+        bits.alignToByte();
+        bits.flush();
+        return out.toByteArray();
+    }
+}
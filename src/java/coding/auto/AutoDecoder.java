@@ -0,0 +1,20 @@
+package coding.auto;
+
+import coding.AbstractDecoder;
+
+/**
+ * Decodes the output of AutoEncoder, decoding the blocks in parallel.
+ */
+public class AutoDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        return TaggedBlocks.decode(bytes, AutoDecoder::decodeBlock);
+    }
+
+    private static String decodeBlock(int id, byte[] payload) {
+        if (id >= BlockCodec.values().length) {
+            throw new IllegalArgumentException("Unknown codec " + id);
+        }
+        return BlockCodec.values()[id].newDecoder().decode(payload);
+    }
+}
@@ -0,0 +1,120 @@
+package coding.auto;
+
+import coding.AbstractEncoder;
+
+/**
+ * An encoder that picks a codec for each block of the text, so the caller doesn't have to.
+ * For each block, it counts the characters and bigrams, estimates the size of the block encoded with each BlockCodec,
+ * and picks the codec with the smallest cost, predicted bits + policy weight * predicted nanoseconds.
+ * Blocks are stored raw if no codec is predicted to make them smaller.
+ * Blocks are independent, so they are encoded (and decoded by AutoDecoder) in parallel.
+ * <p>
+ * Format: the blocks in the container of TaggedBlocks, tagged with the position of their codec in BlockCodec.
+ */
+public class AutoEncoder extends AbstractEncoder {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * How much compression is worth: each policy trades a bit of output for some nanoseconds of CPU time.
+     */
+    public enum Policy {
+        /**
+         * Picks the codec with the smallest predicted output, however slow.
+         */
+        SMALLEST(0),
+        /**
+         * Uses a slow adaptive model only if it saves about a bit per character.
+         */
+        BALANCED(0.0002),
+        /**
+         * Uses only fast codecs, and only if they save a few bits per character.
+         */
+        FASTEST(0.02);
+
+        private final double bitsPerNano;
+
+        Policy(double bitsPerNano) {
+            this.bitsPerNano = bitsPerNano;
+        }
+    }
+
+    private final Policy policy;
+    private final int blockSize;
+
+    /**
+     * Creates an encoder that splits the text into blocks of blockSize characters
+     * and picks a codec for each block according to the policy.
+     * Requires: blockSize > 0
+     */
+    public AutoEncoder(Policy policy, int blockSize) {
+        assert blockSize > 0;
+        this.policy = policy;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates an encoder with blocks of DEFAULT_BLOCK_SIZE characters.
+     */
+    public AutoEncoder(Policy policy) {
+        this(policy, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * The default constructor uses the balanced policy.
+     */
+    public AutoEncoder() {
+        this(Policy.BALANCED);
+    }
+
+    /**
+     * @return the codec that this encoder picks for the given block
+     * @throws IllegalArgumentException if the block has non-ASCII characters
+     */
+    public BlockCodec choose(String block) {
+        return choose(toBlock(block, 0, block.length()));
+    }
+
+    private BlockCodec choose(char[] block) {
+        if (block.length == 0) {
+            return BlockCodec.RAW;
+        }
+        BlockStats stats = new BlockStats(block);
+        BlockCodec best = BlockCodec.RAW;
+        double bestCost = stats.estimateBits(BlockCodec.RAW);
+        for (BlockCodec codec : BlockCodec.values()) {
+            if ((codec == BlockCodec.DIRICHLET || codec == BlockCodec.BIGRAM) && stats.contains('\0')) {
+                // the floating-point arithmetic of ACEncoder can't resolve long runs of character 0
+                continue;
+            }
+            double cost = stats.estimateBits(codec) + policy.bitsPerNano * codec.nanosPerChar() * block.length;
+            if (cost < bestCost) {
+                best = codec;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        int blocks = (text.length() + blockSize - 1) / blockSize;
+        return TaggedBlocks.encode(blocks,
+                i -> encodeBlock(toBlock(text, i * blockSize, Math.min(text.length(), (i + 1) * blockSize))));
+    }
+
+    private static char[] toBlock(String text, int start, int end) {
+        char[] block = new char[end - start];
+        text.getChars(start, end, block, 0);
+        for (char c : block) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+        }
+        return block;
+    }
+
+    private byte[] encodeBlock(char[] block) {
+        BlockCodec codec = choose(block);
+        return TaggedBlocks.record(codec.ordinal(), codec.newEncoder().encode(new String(block)));
+    }
+}
@@ -0,0 +1,75 @@
+package coding.auto;
+
+import coding.Decoder;
+import coding.Encoder;
+import coding.ac.ACDecoder;
+import coding.ac.ACEncoder;
+import coding.ac.BigramDirichletModel;
+import coding.ac.DirichletModel;
+import coding.ac.SemiStaticACDecoder;
+import coding.ac.SemiStaticACEncoder;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+
+/**
+ * The codecs that AutoEncoder chooses from for each block.
+ * The position of each codec is stored in the encoded blocks, so new codecs must be added at the end.
+ */
+public enum BlockCodec {
+    /**
+     * Stores each character as one byte.
+     */
+    RAW(1),
+    /**
+     * SemiStaticHuffmanEncoder: the fastest codec, within one bit per character of the order-0 entropy.
+     */
+    HUFFMAN(80),
+    /**
+     * SemiStaticACEncoder: about as fast as Huffman coding and close to the order-0 entropy.
+     */
+    SEMI_STATIC_AC(160),
+    /**
+     * ACEncoder with DirichletModel(0.01): close to the order-0 entropy without a header, but slow.
+     */
+    DIRICHLET(4000),
+    /**
+     * ACEncoder with BigramDirichletModel(0.01): uses order-1 contexts, and is slow.
+     */
+    BIGRAM(3000);
+
+    static final double ALPHA = 0.01;
+
+    // rough time to encode and decode one character, in nanoseconds, measured on the regression corpora
+    private final double nanosPerChar;
+
+    BlockCodec(double nanosPerChar) {
+        this.nanosPerChar = nanosPerChar;
+    }
+
+    /**
+     * @return the rough time to encode and decode one character with this codec, in nanoseconds
+     */
+    public double nanosPerChar() {
+        return nanosPerChar;
+    }
+
+    Encoder newEncoder() {
+        return switch (this) {
+            case RAW -> new RawEncoder();
+            case HUFFMAN -> new SemiStaticHuffmanEncoder();
+            case SEMI_STATIC_AC -> new SemiStaticACEncoder();
+            case DIRICHLET -> new ACEncoder(new DirichletModel(ALPHA));
+            case BIGRAM -> new ACEncoder(new BigramDirichletModel(ALPHA));
+        };
+    }
+
+    Decoder newDecoder() {
+        return switch (this) {
+            case RAW -> new RawDecoder();
+            case HUFFMAN -> new SemiStaticHuffmanDecoder();
+            case SEMI_STATIC_AC -> new SemiStaticACDecoder();
+            case DIRICHLET -> new ACDecoder(new DirichletModel(ALPHA));
+            case BIGRAM -> new ACDecoder(new BigramDirichletModel(ALPHA));
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package coding.auto;
+
+import coding.ac.QuantizedFreqTable;
+import coding.huffman.HuffmanCodebook;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Character and bigram histograms of a block, from which the output size of each BlockCodec is estimated
+ * without running the codec. The semi-static codecs are estimated from their actual code lengths or frequencies,
+ * and the adaptive Dirichlet models from the closed form of their total code length
+ * (the Dirichlet-multinomial likelihood, which doesn't depend on the order of the characters).
+ */
+class BlockStats {
+    private static final double LN_2 = Math.log(2);
+    private static final double[] LANCZOS = {
+            0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+            -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6,
+            1.5056327351493116e-7
+    };
+
+    private final int length;
+    private final int[] freqs;  // as in Util.countFreqs, with the end-of-file symbol
+    private final int[] bigrams = new int[128 * 128];  // bigrams[p * 128 + c] is the number of times c follows p
+    private final int[] contextTotals = new int[128];  // the number of characters that follow each character
+    private final char last;
+
+    /**
+     * Requires: block is not empty and has only ASCII characters
+     */
+    BlockStats(char[] block) {
+        assert block.length > 0;
+        length = block.length;
+        freqs = new int[129];
+        freqs[128] = 1;
+        freqs[block[0]]++;
+        for (int i = 1; i < block.length; i++) {
+            freqs[block[i]]++;
+            bigrams[block[i - 1] * 128 + block[i]]++;
+            contextTotals[block[i - 1]]++;
+        }
+        last = block[block.length - 1];
+    }
+
+    /**
+     * @return whether the block contains the character c
+     */
+    boolean contains(char c) {
+        return freqs[c] > 0;
+    }
+
+    /**
+     * @return the estimated size of the block encoded with codec, in bits
+     */
+    double estimateBits(BlockCodec codec) {
+        return switch (codec) {
+            case RAW -> 8.0 * length;
+            case HUFFMAN -> huffmanBits();
+            case SEMI_STATIC_AC -> semiStaticBits();
+            case DIRICHLET -> dirichletBits(freqs, length) + Math.log((length + 129 * BlockCodec.ALPHA) / BlockCodec.ALPHA) / LN_2;
+            case BIGRAM -> bigramBits();
+        };
+    }
+
+    private double huffmanBits() {
+        HuffmanCodebook codebook = HuffmanCodebook.fromFreqs(freqs).canonical();
+        int[] lengths = codebook.codeLengths();
+        double bits = 0;
+        for (int c = 0; c < freqs.length; c++) {
+            bits += (double) freqs[c] * lengths[c];
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        codebook.writeCodeLengths(header);
+        return bits + 8.0 * header.size() + 7;
+    }
+
+    private double semiStaticBits() {
+        QuantizedFreqTable table = QuantizedFreqTable.fromCounts(freqs, QuantizedFreqTable.DEFAULT_PRECISION);
+        double bits = 0;
+        for (char c = 0; c < freqs.length; c++) {
+            if (freqs[c] > 0) {
+                bits += freqs[c] * (table.getPrecision() - Math.log(table.freq(c)) / LN_2);
+            }
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        table.writeHeader(header);
+        return bits + 8.0 * header.size() + 16;
+    }
+
+    private double bigramBits() {
+        // the first character is uniform, the rest are coded by the Dirichlet model of the previous character,
+        // and the end-of-file symbol by the model of the last character
+        double bits = Math.log(129) / LN_2;
+        int[] counts = new int[128];
+        for (int p = 0; p < 128; p++) {
+            if (contextTotals[p] > 0) {
+                System.arraycopy(bigrams, p * 128, counts, 0, 128);
+                bits += dirichletBits(counts, contextTotals[p]);
+            }
+        }
+        return bits + Math.log((contextTotals[last] + 129 * BlockCodec.ALPHA) / BlockCodec.ALPHA) / LN_2;
+    }
+
+    /**
+     * @return the number of bits that an adaptive Dirichlet model over 129 symbols takes
+     * for characters with the given counts (not including the end-of-file symbol),
+     * -log2(Gamma(129 alpha) / Gamma(n + 129 alpha) * prod_c Gamma(counts[c] + alpha) / Gamma(alpha))
+     */
+    private static double dirichletBits(int[] counts, int n) {
+        double alpha = BlockCodec.ALPHA;
+        double bits = logGamma(n + 129 * alpha) - logGamma(129 * alpha);
+        for (int c = 0; c < 128; c++) {
+            if (counts[c] > 0) {
+                bits -= logGamma(counts[c] + alpha) - logGamma(alpha);
+            }
+        }
+        return bits / LN_2;
+    }
+
+    /**
+     * @return the natural log of the gamma function at x, using the Lanczos approximation
+     */
+    private static double logGamma(double x) {
+        if (x < 0.5) {
+            return Math.log(Math.PI / Math.sin(Math.PI * x)) - logGamma(1 - x);
+        }
+        x -= 1;
+        double sum = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        double t = x + LANCZOS.length - 1.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+}
@@ -0,0 +1,15 @@
+package coding.auto;
+
+import coding.AbstractDecoder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the output of RawEncoder: each byte is one character.
+ */
+class RawDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,24 @@
+package coding.auto;
+
+import coding.AbstractEncoder;
+
+/**
+ * The identity encoder of BlockCodec.RAW: stores each character as one byte.
+ */
+class RawEncoder extends AbstractEncoder {
+    /**
+     * @throws IllegalArgumentException if text has characters that don't fit in a byte
+     */
+    @Override
+    public byte[] encode(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = text.charAt(i);
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+package coding.auto;
+
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The container format shared by AutoEncoder and TrialEncoder: a text split into independent blocks,
+ * each encoded with the codec named by a one-byte tag.
+ * <p>
+ * Format: the number of blocks as a varint, then for each block the length of its record as a varint
+ * followed by the record: the tag as one byte and the block encoded with the codec of that tag.
+ * Blocks are independent, so they are encoded and decoded in parallel.
+ */
+final class TaggedBlocks {
+    /**
+     * Decodes the payload of one record.
+     */
+    interface BlockDecoder {
+        /**
+         * @throws IllegalArgumentException if the tag is unknown or the payload is invalid
+         */
+        String decode(int tag, byte[] payload);
+    }
+
+    private TaggedBlocks() {
+    }
+
+    /**
+     * @return the record of a block encoded as payload with the codec of the given tag
+     * Requires: 0 <= tag < 256
+     */
+    static byte[] record(int tag, byte[] payload) {
+        assert 0 <= tag && tag < 256;
+        byte[] record = new byte[payload.length + 1];
+        record[0] = (byte) tag;
+        System.arraycopy(payload, 0, record, 1, payload.length);
+        return record;
+    }
+
+    /**
+     * Encodes blocks 0 to blocks - 1 in parallel with encodeBlock, which returns the record of each block,
+     * and writes the records in order.
+     */
+    static byte[] encode(int blocks, IntFunction<byte[]> encodeBlock) {
+        List<byte[]> records = IntStream.range(0, blocks).parallel().mapToObj(encodeBlock).toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, blocks);
+        try {
+            for (byte[] record : records) {
+                Util.writeVarint(out, record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Splits bytes into records, decodes their payloads in parallel with decoder and joins the blocks.
+     * @throws IllegalArgumentException if the container is invalid
+     */
+    static String decode(byte[] bytes, BlockDecoder decoder) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long blocks = Util.readVarint(in);
+        if (blocks > in.remaining()) {
+            throw new IllegalArgumentException("Invalid block count " + blocks);
+        }
+        int[] tags = new int[(int) blocks];
+        List<byte[]> payloads = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            int length = (int) Util.readVarint(in);
+            if (length <= 0 || length > in.remaining()) {
+                throw new IllegalArgumentException("Invalid block length " + length);
+            }
+            tags[i] = in.get() & 0xFF;
+            payloads.add(Arrays.copyOfRange(bytes, in.position(), in.position() + length - 1));
+            in.position(in.position() + length - 1);
+        }
+        List<String> decoded = IntStream.range(0, tags.length).parallel()
+                .mapToObj(i -> decoder.decode(tags[i], payloads.get(i)))
+                .toList();
+        StringBuilder sb = new StringBuilder();
+        for (String block : decoded) {
+            sb.append(block);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package coding.auto;
+
+import coding.AbstractDecoder;
+import coding.CodecFactory;
+
+import java.util.List;
+
+/**
+ * Decodes the output of TrialEncoder, decoding the blocks in parallel.
+ */
+public class TrialDecoder extends AbstractDecoder {
+    private final List<CodecFactory> candidates;
+
+    /**
+     * Requires: candidates are the same, in the same order, as the ones given to the encoder
+     */
+    public TrialDecoder(List<CodecFactory> candidates) {
+        this.candidates = List.copyOf(candidates);
+    }
+
+    /**
+     * The default constructor decodes the output of the default TrialEncoder.
+     */
+    public TrialDecoder() {
+        this(TrialEncoder.defaultCandidates());
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        return TaggedBlocks.decode(bytes, this::decodeBlock);
+    }
+
+    private String decodeBlock(int tag, byte[] payload) {
+        if (tag >= candidates.size()) {
+            throw new IllegalArgumentException("Unknown candidate " + tag);
+        }
+        return candidates.get(tag).decode(payload);
+    }
+}
@@ -0,0 +1,142 @@
+package coding.auto;
+
+import coding.AbstractEncoder;
+import coding.CodecFactory;
+import coding.ac.ACCodecFactory;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An encoder that tries several candidate codecs on each block of the text at the same time
+ * and keeps the smallest output, tagged with the position of the winning candidate so that TrialDecoder
+ * knows which codec to use. Unlike AutoEncoder, which predicts sizes, this measures them,
+ * so it works for any codec but costs an encode per candidate.
+ * <p>
+ * To save work, candidates are first run on a prefix of 1/16 of the block, and then on a prefix of 1/4.
+ * After each of these trials, the candidates whose output is more than (1 + margin) times the smallest are dropped,
+ * and only the remaining candidates encode the whole block.
+ * Candidates run in parallel, so the time to encode a block is close to that of the slowest remaining candidate.
+ * A candidate that rejects a block with an IllegalArgumentException is dropped for that block;
+ * any other exception is a bug in the candidate and is thrown.
+ * <p>
+ * Format: the blocks in the container of TaggedBlocks, tagged with the position of their candidate.
+ */
+public class TrialEncoder extends AbstractEncoder {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    public static final double DEFAULT_MARGIN = 0.2;
+    private static final int[] TRIAL_FRACTIONS = {16, 4};  // trials on 1/16 and 1/4 of the block
+    private static final int MIN_TRIAL_LENGTH = 1024;  // shorter prefixes don't predict the winner well
+
+    private final List<CodecFactory> candidates;
+    private final int blockSize;
+    private final double margin;
+
+    /**
+     * Creates an encoder that splits the text into blocks of blockSize characters and tries the candidates on each,
+     * dropping candidates whose output on a prefix is more than (1 + margin) times the smallest.
+     * Requires: 0 < candidates.size() <= 256, blockSize > 0 and margin >= 0
+     */
+    public TrialEncoder(List<CodecFactory> candidates, int blockSize, double margin) {
+        assert 0 < candidates.size() && candidates.size() <= 256 && blockSize > 0 && margin >= 0;
+        this.candidates = List.copyOf(candidates);
+        this.blockSize = blockSize;
+        this.margin = margin;
+    }
+
+    /**
+     * Creates an encoder with blocks of DEFAULT_BLOCK_SIZE characters and a margin of DEFAULT_MARGIN.
+     */
+    public TrialEncoder(List<CodecFactory> candidates) {
+        this(candidates, DEFAULT_BLOCK_SIZE, DEFAULT_MARGIN);
+    }
+
+    /**
+     * The default constructor tries the codecs of the benchmarks (see defaultCandidates).
+     */
+    public TrialEncoder() {
+        this(defaultCandidates());
+    }
+
+    /**
+     * @return the codecs compared in the benchmarks: semi-static Huffman coding,
+     * and AC with the fixed model, the Dirichlet model and the Bigram Dirichlet model (alpha = 0.01, 1, 100)
+     */
+    public static List<CodecFactory> defaultCandidates() {
+        List<CodecFactory> candidates = new ArrayList<>();
+        candidates.add(CodecFactory.of(SemiStaticHuffmanEncoder::new, SemiStaticHuffmanDecoder::new));
+        candidates.add(ACCodecFactory.fixed());
+        for (double alpha : new double[]{0.01, 1, 100}) {
+            candidates.add(ACCodecFactory.dirichlet(alpha));
+        }
+        for (double alpha : new double[]{0.01, 1, 100}) {
+            candidates.add(ACCodecFactory.bigram(alpha));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the position of the candidate that this encoder picks for the given block
+     * @throws IllegalArgumentException if no candidate can encode the block
+     */
+    public int choose(String block) {
+        return encodeBlock(block)[0] & 0xFF;
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        int blocks = (text.length() + blockSize - 1) / blockSize;
+        return TaggedBlocks.encode(blocks,
+                i -> encodeBlock(text.substring(i * blockSize, Math.min(text.length(), (i + 1) * blockSize))));
+    }
+
+    /**
+     * Encodes text with each of the alive candidates in parallel.
+     * @return the output of each candidate, or null if it rejected the text
+     */
+    private List<byte[]> trial(List<Integer> alive, String text) {
+        return alive.parallelStream().map(i -> {
+            try {
+                return candidates.get(i).encode(text);
+            } catch (IllegalArgumentException e) {
+                return (byte[]) null;  // the candidate rejects this input; anything else is a bug and propagates
+            }
+        }).toList();
+    }
+
+    private byte[] encodeBlock(String block) {
+        List<Integer> alive = IntStream.range(0, candidates.size()).boxed().toList();
+        for (int fraction : TRIAL_FRACTIONS) {
+            int length = block.length() / fraction;
+            if (length < MIN_TRIAL_LENGTH || alive.size() == 1) {
+                continue;
+            }
+            List<byte[]> outputs = trial(alive, block.substring(0, length));
+            int best = outputs.stream().filter(o -> o != null).mapToInt(o -> o.length).min().orElse(-1);
+            if (best < 0) {
+                break;  // every candidate failed, which the final trial reports
+            }
+            List<Integer> remaining = new ArrayList<>();
+            for (int i = 0; i < alive.size(); i++) {
+                if (outputs.get(i) != null && outputs.get(i).length <= best * (1 + margin)) {
+                    remaining.add(alive.get(i));
+                }
+            }
+            alive = remaining;
+        }
+        List<byte[]> outputs = trial(alive, block);
+        int winner = -1;
+        for (int i = 0; i < alive.size(); i++) {
+            if (outputs.get(i) != null && (winner < 0 || outputs.get(i).length < outputs.get(winner).length)) {
+                winner = i;
+            }
+        }
+        if (winner < 0) {
+            throw new IllegalArgumentException("No candidate can encode the block");
+        }
+        return TaggedBlocks.record(alive.get(winner), outputs.get(winner));
+    }
+}
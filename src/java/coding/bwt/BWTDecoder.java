@@ -0,0 +1,68 @@
+package coding.bwt;
+
+import coding.AbstractDecoder;
+import coding.CodecFactory;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the output of BWTEncoder, decoding the blocks in parallel.
+ */
+public class BWTDecoder extends AbstractDecoder {
+    private final CodecFactory entropyCoder;
+
+    /**
+     * Creates a decoder that decodes the transformed blocks with decoders from entropyCoder.
+     * Requires: entropyCoder is the same as the one given to the encoder.
+     */
+    public BWTDecoder(CodecFactory entropyCoder) {
+        this.entropyCoder = entropyCoder;
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int blocks = (int) Util.readVarint(in);
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            int length = (int) Util.readVarint(in);
+            records.add(Arrays.copyOfRange(bytes, in.position(), in.position() + length));
+            in.position(in.position() + length);
+        }
+        List<char[]> decoded = records.parallelStream().map(this::decodeBlock).toList();
+        StringBuilder sb = new StringBuilder();
+        for (char[] block : decoded) {
+            sb.append(block);
+        }
+        return sb.toString();
+    }
+
+    private char[] decodeBlock(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        int primary = (int) Util.readVarint(in);
+        byte[] bitmap = new byte[16];
+        in.get(bitmap);
+        boolean[] used = new boolean[128];
+        for (int c = 0; c < used.length; c++) {
+            used[c] = ((bitmap[c / 8] >> (7 - c % 8)) & 1) == 1;
+        }
+        int flags = in.get();
+        boolean zeroRuns = (flags & 1) != 0;
+        String symbols = entropyCoder.newDecoder().decode(Arrays.copyOfRange(record, in.position(), record.length));
+        if ((flags & 2) != 0) {
+            char[] unshifted = symbols.toCharArray();
+            for (int i = 0; i < unshifted.length; i++) {
+                if (unshifted[i] == 0) {
+                    throw new IllegalArgumentException("Unexpected symbol 0 in a shifted block");
+                }
+                unshifted[i]--;
+            }
+            symbols = new String(unshifted);
+        }
+        return BurrowsWheeler.inverse(MoveToFront.decode(symbols, used, zeroRuns), primary);
+    }
+}
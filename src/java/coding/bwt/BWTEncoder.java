@@ -0,0 +1,116 @@
+package coding.bwt;
+
+import coding.AbstractEncoder;
+import coding.CodecFactory;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An encoder that splits the text into blocks, applies the Burrows-Wheeler transform,
+ * move-to-front and zero-run coding to each block (see BurrowsWheeler and MoveToFront),
+ * and then encodes the result with an entropy coder, such as AC with a Dirichlet model or Huffman coding.
+ * The transform brings together characters that appear in similar contexts,
+ * so this captures long-range repetition that order-0 and order-1 models can't.
+ * Blocks are independent, so they are encoded (and decoded by BWTDecoder) in parallel.
+ * <p>
+ * Format: the number of blocks as a varint, then for each block the length of its record as a varint
+ * followed by the record: the row of the end marker as a varint, a 16-byte bitmap of the characters
+ * used by the block, a flags byte (bit 0 is set if zero-run coding is used,
+ * bit 1 if the symbols are shifted up by one), and the output of the entropy encoder.
+ */
+public class BWTEncoder extends AbstractEncoder {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    private final CodecFactory entropyCoder;
+    private final int blockSize;
+
+    /**
+     * Creates an encoder that splits the text into blocks of blockSize characters
+     * and encodes the transformed blocks with encoders from entropyCoder.
+     * Requires: blockSize > 0 and entropyCoder can encode any ASCII text
+     * (e.g. an adaptive AC model or SemiStaticHuffmanEncoder, but not Huffman codes built for another text).
+     */
+    public BWTEncoder(CodecFactory entropyCoder, int blockSize) {
+        assert blockSize > 0;
+        this.entropyCoder = entropyCoder;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates an encoder with blocks of DEFAULT_BLOCK_SIZE characters.
+     */
+    public BWTEncoder(CodecFactory entropyCoder) {
+        this(entropyCoder, DEFAULT_BLOCK_SIZE);
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        int blocks = (text.length() + blockSize - 1) / blockSize;
+        List<byte[]> records = IntStream.range(0, blocks).parallel()
+                .mapToObj(i -> encodeBlock(text, i * blockSize, Math.min(text.length(), (i + 1) * blockSize)))
+                .toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, blocks);
+        try {
+            for (byte[] record : records) {
+                Util.writeVarint(out, record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] encodeBlock(String text, int start, int end) {
+        char[] block = new char[end - start];
+        text.getChars(start, end, block, 0);
+        boolean[] used = new boolean[128];
+        int usedCount = 0;
+        for (char c : block) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+            if (!used[c]) {
+                used[c] = true;
+                usedCount++;
+            }
+        }
+        char[] last = new char[block.length];
+        int primary = BurrowsWheeler.transform(block, last);
+        boolean zeroRuns = MoveToFront.canCodeZeroRuns(usedCount);
+        String symbols = MoveToFront.encode(last, used, zeroRuns);
+        // Shift the symbols up by one when there is room, leaving 0 unused:
+        // long runs of the lowest symbol need more lookahead than the double arithmetic of ACDecoder has.
+        int maxSymbol = zeroRuns ? usedCount : usedCount - 1;
+        boolean shifted = maxSymbol < 127;
+        if (shifted) {
+            char[] shiftedSymbols = symbols.toCharArray();
+            for (int i = 0; i < shiftedSymbols.length; i++) {
+                shiftedSymbols[i]++;
+            }
+            symbols = new String(shiftedSymbols);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, primary);
+        byte[] bitmap = new byte[16];
+        for (int c = 0; c < used.length; c++) {
+            if (used[c]) {
+                bitmap[c / 8] |= (byte) (1 << (7 - c % 8));
+            }
+        }
+        try {
+            out.write(bitmap);
+            out.write((zeroRuns ? 1 : 0) | (shifted ? 2 : 0));
+            out.write(entropyCoder.newEncoder().encode(symbols));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package coding.bwt;
+
+/**
+ * The Burrows-Wheeler transform (BWT) of a block of text.
+ * Conceptually, the block followed by a unique end marker that is smaller than every character
+ * is rotated in every possible way, the rotations are sorted, and the transform is the last column.
+ * Characters that precede similar contexts end up next to each other, so the transform has long runs
+ * that move-to-front coding turns into small numbers.
+ * The end marker is not stored; instead, the transform records the row where it would be.
+ */
+public class BurrowsWheeler {
+    private BurrowsWheeler() {
+    }
+
+    /**
+     * Writes the transform of block into last and returns the row of the end marker,
+     * which is needed to invert the transform.
+     * Requires: last.length == block.length and every character of block is ASCII (0-127).
+     */
+    public static int transform(char[] block, char[] last) {
+        assert last.length == block.length;
+        int[] sa = SuffixArray.of(block);
+        // row 0 is the rotation starting with the end marker, whose last character is the last character of block
+        int primary = 0;
+        int j = 0;
+        if (block.length > 0) {
+            last[j++] = block[block.length - 1];
+        }
+        for (int i = 0; i < sa.length; i++) {
+            if (sa[i] == 0) {
+                primary = i + 1;  // the rotation starting at 0 ends with the end marker
+            } else {
+                last[j++] = block[sa[i] - 1];
+            }
+        }
+        return primary;
+    }
+
+    /**
+     * @return the block whose transform is last with the end marker at row primary
+     * @throws IllegalArgumentException if primary is out of range
+     */
+    public static char[] inverse(char[] last, int primary) {
+        int n = last.length;
+        if (primary < 0 || primary > n || (n > 0 && primary == 0)) {
+            throw new IllegalArgumentException("Invalid row of the end marker: " + primary);
+        }
+        // firstRow[c] is the first row that starts with c; row 0 starts with the end marker
+        int[] firstRow = new int[129];
+        for (char c : last) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+            firstRow[c + 1]++;
+        }
+        firstRow[0] = 1;
+        for (int c = 1; c < firstRow.length; c++) {
+            firstRow[c] += firstRow[c - 1];
+        }
+        // next[r] is the row of the rotation that starts with the last character of row r (the LF mapping)
+        int[] next = new int[n + 1];
+        for (int r = 0; r <= n; r++) {
+            if (r != primary) {
+                next[r] = firstRow[last[r < primary ? r : r - 1]]++;
+            }
+        }
+        // walk backwards from the row that starts with the end marker
+        char[] block = new char[n];
+        int r = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            block[i] = last[r < primary ? r : r - 1];
+            r = next[r];
+        }
+        return block;
+    }
+}
@@ -0,0 +1,143 @@
+package coding.bwt;
+
+/**
+ * Move-to-front (MTF) coding followed by zero-run coding, as in bzip2.
+ * MTF replaces each character by its position in a list of the characters used by the block,
+ * then moves it to the front of the list, so the runs of the BWT become runs of 0s.
+ * Zero-run coding then writes the length r of each run of 0s in bijective base 2
+ * with the two symbols RUN_A (digit 1) and RUN_B (digit 2), least significant digit first,
+ * and shifts every other position up by one.
+ * For example, a run of 5 zeros is 5 = 1 + 2 * 2, i.e. RUN_A RUN_B.
+ * The output symbols are encoded as characters so that they can be fed to the existing encoders.
+ */
+public class MoveToFront {
+    public static final char RUN_A = 0;
+    public static final char RUN_B = 1;
+
+    private MoveToFront() {
+    }
+
+    /**
+     * @return the characters c with used[c] in increasing order, which is the initial MTF list
+     */
+    private static char[] initialList(boolean[] used) {
+        int size = 0;
+        for (boolean u : used) {
+            if (u) {
+                size++;
+            }
+        }
+        char[] list = new char[size];
+        for (int c = 0, i = 0; c < used.length; c++) {
+            if (used[c]) {
+                list[i++] = (char) c;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Whether zero-run coding fits in the ASCII range for a block that uses the given number of characters:
+     * the largest position, usedCount - 1, becomes usedCount after shifting.
+     */
+    public static boolean canCodeZeroRuns(int usedCount) {
+        return usedCount < 128;
+    }
+
+    /**
+     * MTF-codes the text, whose characters must all be in used,
+     * and zero-run codes the result if zeroRuns is true.
+     * Requires: if zeroRuns is true, canCodeZeroRuns for the number of characters in used
+     */
+    public static String encode(char[] text, boolean[] used, boolean zeroRuns) {
+        char[] list = initialList(used);
+        assert !zeroRuns || canCodeZeroRuns(list.length);
+        StringBuilder sb = new StringBuilder(text.length);
+        int run = 0;
+        for (char c : text) {
+            int pos = 0;
+            while (list[pos] != c) {
+                pos++;
+            }
+            System.arraycopy(list, 0, list, 1, pos);
+            list[0] = c;
+            if (!zeroRuns) {
+                sb.append((char) pos);
+            } else if (pos == 0) {
+                run++;
+            } else {
+                writeRun(sb, run);
+                run = 0;
+                sb.append((char) (pos + 1));
+            }
+        }
+        if (zeroRuns) {
+            writeRun(sb, run);
+        }
+        return sb.toString();
+    }
+
+    private static void writeRun(StringBuilder sb, int run) {
+        while (run > 0) {
+            if ((run & 1) == 1) {
+                sb.append(RUN_A);
+                run = (run - 1) >> 1;
+            } else {
+                sb.append(RUN_B);
+                run = (run - 2) >> 1;
+            }
+        }
+    }
+
+    /**
+     * Inverts encode.
+     * @throws IllegalArgumentException if symbols contains a position outside of the list
+     */
+    public static char[] decode(String symbols, boolean[] used, boolean zeroRuns) {
+        char[] list = initialList(used);
+        StringBuilder sb = new StringBuilder(symbols.length());
+        int run = 0;
+        int digit = 1;  // value of the next digit of the run length
+        for (int i = 0; i < symbols.length(); i++) {
+            char symbol = symbols.charAt(i);
+            int pos;
+            if (!zeroRuns) {
+                pos = symbol;
+            } else if (symbol == RUN_A || symbol == RUN_B) {
+                run += (symbol == RUN_A ? 1 : 2) * digit;
+                digit <<= 1;
+                continue;
+            } else {
+                pos = symbol - 1;
+            }
+            if (pos >= list.length) {
+                throw new IllegalArgumentException("Invalid move-to-front position " + pos);
+            }
+            appendRun(sb, list[0], run);
+            run = 0;
+            digit = 1;
+            char c = list[pos];
+            System.arraycopy(list, 0, list, 1, pos);
+            list[0] = c;
+            sb.append(c);
+        }
+        if (run > 0) {
+            if (list.length == 0) {
+                throw new IllegalArgumentException("Invalid run in an empty block");
+            }
+            appendRun(sb, list[0], run);
+        }
+        char[] text = new char[sb.length()];
+        sb.getChars(0, text.length, text, 0);
+        return text;
+    }
+
+    /**
+     * Appends run copies of c to sb.
+     */
+    private static void appendRun(StringBuilder sb, char c, int run) {
+        for (int i = 0; i < run; i++) {
+            sb.append(c);
+        }
+    }
+}
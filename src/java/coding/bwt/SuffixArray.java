@@ -0,0 +1,172 @@
+package coding.bwt;
+
+import java.util.Arrays;
+
+/**
+ * Suffix array construction in linear time with the SA-IS algorithm
+ * (Nong, Zhang and Chan, "Two Efficient Algorithms for Linear Time Suffix Array Construction").
+ * Suffixes are classified as S-type (smaller than the next suffix) or L-type (larger).
+ * The leftmost S-type suffixes (LMS) are sorted first, recursively if their substrings are not unique,
+ * and the order of every other suffix is then induced from them with two passes over the buckets.
+ */
+public class SuffixArray {
+    private SuffixArray() {
+    }
+
+    /**
+     * @return the suffix array of text: sa[i] is the start of the i-th smallest suffix
+     * Requires: every character of text is ASCII (0-127).
+     */
+    public static int[] of(char[] text) {
+        // shift the characters up by one to make room for a unique smallest sentinel 0 at the end
+        int[] s = new int[text.length + 1];
+        for (int i = 0; i < text.length; i++) {
+            assert text[i] < 128;
+            s[i] = text[i] + 1;
+        }
+        int[] sa = sais(s, 129);
+        return Arrays.copyOfRange(sa, 1, sa.length);  // drop the sentinel, which is always the smallest
+    }
+
+    /**
+     * @return the suffix array of s
+     * Requires: s ends with a 0 that appears nowhere else, and every element of s is in [0, alphabetSize).
+     */
+    private static int[] sais(int[] s, int alphabetSize) {
+        int n = s.length;
+        int[] sa = new int[n];
+        if (n == 1) {
+            return sa;
+        }
+        boolean[] sType = new boolean[n];
+        sType[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            sType[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && sType[i + 1]);
+        }
+        int[] bucketSizes = new int[alphabetSize];
+        for (int c : s) {
+            bucketSizes[c]++;
+        }
+
+        // step 1: sort the LMS substrings by placing them at the ends of their buckets and inducing
+        Arrays.fill(sa, -1);
+        int[] bucket = bucketEnds(bucketSizes);
+        for (int i = 1; i < n; i++) {
+            if (isLMS(sType, i)) {
+                sa[--bucket[s[i]]] = i;
+            }
+        }
+        induce(s, sa, sType, bucketSizes);
+
+        // step 2: name the LMS substrings by their rank, giving equal substrings equal names
+        int lmsCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLMS(sType, sa[i])) {
+                sa[lmsCount++] = sa[i];
+            }
+        }
+        Arrays.fill(sa, lmsCount, n, -1);
+        int names = 0;
+        int prev = -1;
+        for (int i = 0; i < lmsCount; i++) {
+            int pos = sa[i];
+            if (prev == -1 || !equalLMSSubstrings(s, sType, prev, pos)) {
+                names++;
+                prev = pos;
+            }
+            // LMS positions are at least two apart, so pos / 2 is a unique slot
+            sa[lmsCount + pos / 2] = names - 1;
+        }
+        int[] reduced = new int[lmsCount];
+        int[] lmsPositions = new int[lmsCount];
+        for (int i = lmsCount, j = 0; i < n; i++) {
+            if (sa[i] >= 0) {
+                reduced[j++] = sa[i];
+            }
+        }
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLMS(sType, i)) {
+                lmsPositions[j++] = i;
+            }
+        }
+
+        // step 3: sort the LMS suffixes, recursing if the names are not unique yet
+        int[] reducedSA;
+        if (names < lmsCount) {
+            reducedSA = sais(reduced, names);
+        } else {
+            reducedSA = new int[lmsCount];
+            for (int i = 0; i < lmsCount; i++) {
+                reducedSA[reduced[i]] = i;
+            }
+        }
+
+        // step 4: place the sorted LMS suffixes at the ends of their buckets and induce the rest
+        Arrays.fill(sa, -1);
+        bucket = bucketEnds(bucketSizes);
+        for (int i = lmsCount - 1; i >= 0; i--) {
+            int pos = lmsPositions[reducedSA[i]];
+            sa[--bucket[s[pos]]] = pos;
+        }
+        induce(s, sa, sType, bucketSizes);
+        return sa;
+    }
+
+    private static boolean isLMS(boolean[] sType, int i) {
+        return i > 0 && sType[i] && !sType[i - 1];
+    }
+
+    /**
+     * @return whether the LMS substrings starting at a and b are equal
+     */
+    private static boolean equalLMSSubstrings(int[] s, boolean[] sType, int a, int b) {
+        for (int d = 0; ; d++) {
+            // the sentinel is unique, so the loop stops before running off the end
+            if (s[a + d] != s[b + d] || sType[a + d] != sType[b + d]) {
+                return false;
+            }
+            if (d > 0 && (isLMS(sType, a + d) || isLMS(sType, b + d))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Induces the order of the L-type suffixes from left to right,
+     * then the order of the S-type suffixes from right to left.
+     */
+    private static void induce(int[] s, int[] sa, boolean[] sType, int[] bucketSizes) {
+        int[] bucket = bucketStarts(bucketSizes);
+        for (int i = 0; i < sa.length; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !sType[j]) {
+                sa[bucket[s[j]]++] = j;
+            }
+        }
+        bucket = bucketEnds(bucketSizes);
+        for (int i = sa.length - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && sType[j]) {
+                sa[--bucket[s[j]]] = j;
+            }
+        }
+    }
+
+    private static int[] bucketStarts(int[] bucketSizes) {
+        int[] starts = new int[bucketSizes.length];
+        for (int c = 1; c < bucketSizes.length; c++) {
+            starts[c] = starts[c - 1] + bucketSizes[c - 1];
+        }
+        return starts;
+    }
+
+    private static int[] bucketEnds(int[] bucketSizes) {
+        int[] ends = new int[bucketSizes.length];
+        int sum = 0;
+        for (int c = 0; c < bucketSizes.length; c++) {
+            sum += bucketSizes[c];
+            ends[c] = sum;
+        }
+        return ends;
+    }
+}
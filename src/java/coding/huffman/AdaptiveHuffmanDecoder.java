@@ -0,0 +1,38 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+
+/**
+ * Represents the decoder for adaptive Huffman coding.
+ * It rebuilds the same tree as AdaptiveHuffmanEncoder by updating it after every decoded symbol.
+ */
+public class AdaptiveHuffmanDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+        StringBuilder sb = new StringBuilder();
+        int idx = 0;
+        while (true) {
+            int node = tree.root();
+            while (!tree.isLeaf(node)) {
+                node = tree.child(node, getBit(bytes, idx++));
+            }
+            char c;
+            if (tree.isNYT(node)) {
+                // a symbol that has not appeared yet follows in raw bits
+                c = 0;
+                for (int i = 0; i < AdaptiveHuffmanTree.RAW_BITS; i++) {
+                    c = (char) ((c << 1) | getBit(bytes, idx++));
+                }
+            } else {
+                c = tree.symbolOf(node);
+            }
+            if (c == 128) {
+                // reached end-of-file character
+                return sb.toString();
+            }
+            sb.append(c);
+            tree.update(c);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package coding.huffman;
+
+import coding.AbstractEncoder;
+import coding.BitWriter;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Represents the encoder for adaptive Huffman coding.
+ * Unlike HuffmanEncoder, it needs no frequencies in advance: the tree starts empty and is updated
+ * after every symbol, so the text is read in a single pass and no codes need to be sent to the decoder.
+ */
+public class AdaptiveHuffmanEncoder extends AbstractEncoder {
+    @Override
+    public byte[] encode(String text) {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BitWriter bits = new BitWriter(out);
+        for (char c : text.toCharArray()) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+            tree.write(c, bits);
+            tree.update(c);
+        }
+        tree.write((char) 128, bits);  // end-of-file symbol
+        bits.alignToByte();
+        bits.flush();
+        return out.toByteArray();
+    }
+}
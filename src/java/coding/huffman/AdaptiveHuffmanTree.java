@@ -0,0 +1,158 @@
+package coding.huffman;
+
+import coding.BitWriter;
+
+import java.util.Arrays;
+
+/**
+ * The Huffman tree of adaptive Huffman coding (the FGK algorithm), stored in flat arrays.
+ * Nodes are identified by their number in the sibling-property order: weights never decrease
+ * as the number increases, and siblings have adjacent numbers. The root has the highest number.
+ * Symbols that have not appeared yet share the NYT ("not yet transmitted") leaf, which has weight 0:
+ * a new symbol is sent as the codeword of NYT followed by the symbol in 8 raw bits.
+ * After each symbol, update(c) increments the weights on the path from its leaf to the root,
+ * swapping each node with the highest-numbered node of the same weight first to keep the sibling property.
+ * All arrays are allocated up front, so encoding and updating never allocate.
+ */
+final class AdaptiveHuffmanTree {
+    static final int SYMBOLS = 129;  // ASCII characters 0-127 and the end-of-file symbol 128
+    static final int RAW_BITS = 8;  // number of bits to send a new symbol
+    private static final int MAX_NODES = 2 * SYMBOLS - 1;
+    private static final int INTERNAL = -1;
+    private static final int NYT = -2;
+
+    private final int[] weight = new int[MAX_NODES];
+    private final int[] parent = new int[MAX_NODES];
+    private final int[] left = new int[MAX_NODES];  // child for bit 0
+    private final int[] right = new int[MAX_NODES];  // child for bit 1
+    private final int[] symbol = new int[MAX_NODES];  // the symbol of a leaf, INTERNAL or NYT
+    private final int[] leafOf = new int[SYMBOLS];  // leafOf[c] is the leaf of c, or -1 if c has not appeared
+    private final int[] path = new int[MAX_NODES];  // scratch space for writing a codeword
+    private final int root = MAX_NODES - 1;
+    private int nyt = root;
+    private int nextFree = root - 1;  // highest unused node number
+
+    AdaptiveHuffmanTree() {
+        Arrays.fill(leafOf, -1);
+        parent[root] = -1;
+        symbol[root] = NYT;
+    }
+
+    /**
+     * Writes the codeword of c, or the codeword of NYT and c in raw bits if c has not appeared yet.
+     */
+    void write(char c, BitWriter out) {
+        int node = leafOf[c] >= 0 ? leafOf[c] : nyt;
+        // collect the bits from the leaf up to the root, then write them from the root down
+        int length = 0;
+        while (node != root) {
+            path[length++] = right[parent[node]] == node ? 1 : 0;
+            node = parent[node];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            out.writeBit(path[i]);
+        }
+        if (leafOf[c] < 0) {
+            for (int i = RAW_BITS - 1; i >= 0; i--) {
+                out.writeBit((c >> i) & 1);
+            }
+        }
+    }
+
+    int root() {
+        return root;
+    }
+
+    /**
+     * @return the child of an internal node for the given bit
+     */
+    int child(int node, int bit) {
+        return bit == 0 ? left[node] : right[node];
+    }
+
+    boolean isLeaf(int node) {
+        return symbol[node] != INTERNAL;
+    }
+
+    boolean isNYT(int node) {
+        return symbol[node] == NYT;
+    }
+
+    /**
+     * @return the symbol of a leaf other than NYT
+     */
+    char symbolOf(int node) {
+        return (char) symbol[node];
+    }
+
+    /**
+     * Updates the tree given that the next symbol is c.
+     */
+    void update(char c) {
+        int node;
+        if (leafOf[c] < 0) {
+            // split NYT into a new NYT (left) and a leaf for c (right)
+            int leaf = nextFree--;
+            int newNYT = nextFree--;
+            int oldNYT = nyt;
+            symbol[oldNYT] = INTERNAL;
+            left[oldNYT] = newNYT;
+            right[oldNYT] = leaf;
+            parent[newNYT] = oldNYT;
+            parent[leaf] = oldNYT;
+            symbol[newNYT] = NYT;
+            symbol[leaf] = c;
+            weight[newNYT] = 0;
+            weight[leaf] = 0;
+            leafOf[c] = leaf;
+            nyt = newNYT;
+            node = leaf;
+        } else {
+            node = leafOf[c];
+        }
+        while (node != -1) {
+            int leader = node;
+            while (leader < root && weight[leader + 1] == weight[node]) {
+                leader++;
+            }
+            if (leader != node && leader != parent[node]) {
+                swap(node, leader);
+                node = leader;
+            }
+            weight[node]++;
+            node = parent[node];
+        }
+    }
+
+    /**
+     * Swaps the subtrees at node numbers a and b, which have the same weight.
+     * The numbers keep their parents; only what hangs from them is exchanged.
+     */
+    private void swap(int a, int b) {
+        int tmp = symbol[a];
+        symbol[a] = symbol[b];
+        symbol[b] = tmp;
+        tmp = left[a];
+        left[a] = left[b];
+        left[b] = tmp;
+        tmp = right[a];
+        right[a] = right[b];
+        right[b] = tmp;
+        fixLinks(a);
+        fixLinks(b);
+    }
+
+    /**
+     * Points the children (or the leaf table) back at the node with the given number.
+     */
+    private void fixLinks(int node) {
+        if (symbol[node] == INTERNAL) {
+            parent[left[node]] = node;
+            parent[right[node]] = node;
+        } else if (symbol[node] == NYT) {
+            nyt = node;
+        } else {
+            leafOf[symbol[node]] = node;
+        }
+    }
+}
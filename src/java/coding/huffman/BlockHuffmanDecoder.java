@@ -0,0 +1,50 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+import coding.Framing;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the output of BlockHuffmanEncoder, switching code tables at block boundaries.
+ */
+public class BlockHuffmanDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long length = Util.readVarint(in);
+        long blockSize = Util.readVarint(in);
+        // every codeword takes at least one bit, so a longer length than the input can hold is forged
+        if (length > Integer.MAX_VALUE - 8 || length > 8L * in.remaining() || (length > 0 && blockSize == 0)) {
+            throw new IllegalArgumentException("Invalid header");
+        }
+        StringBuilder sb = new StringBuilder((int) length);
+        HuffmanTree tree = null;
+        while (sb.length() < length) {
+            int flag = in.get();
+            if (flag == 1) {
+                tree = HuffmanCodebook.readCodeLengths(in, Framing.LENGTH_PREFIX).tree();
+            } else if (flag != 0 || tree == null) {
+                throw new IllegalArgumentException("Invalid block flag " + flag);
+            }
+            long blockEnd = Math.min(length, sb.length() + blockSize);
+            int bit = in.position() * 8;
+            while (sb.length() < blockEnd) {
+                HuffmanTree cur = tree;
+                while (cur.c == null) {
+                    cur = getBit(bytes, bit++) == 0 ? cur.left : cur.right;
+                    if (cur == null) {
+                        throw new IllegalArgumentException("Invalid codeword at bit " + bit);
+                    }
+                }
+                if (cur.c == 128) {
+                    throw new IllegalArgumentException("Unexpected end-of-file symbol at bit " + bit);
+                }
+                sb.append(cur.c.charValue());
+            }
+            in.position((bit + 7) / 8);
+        }
+        return sb.toString();
+    }
+}
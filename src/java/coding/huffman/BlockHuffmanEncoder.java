@@ -0,0 +1,108 @@
+package coding.huffman;
+
+import coding.AbstractEncoder;
+import coding.BitWriter;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A Huffman encoder that splits the text into blocks and gives each block its own code table,
+ * so the codes follow the statistics of texts that drift (e.g. logs that switch format or concatenated documents).
+ * A block reuses the table of the previous block when its own canonical table
+ * would not save enough bits to pay for storing it.
+ * <p>
+ * Format: the length of the text and the block size as varints, then for each block
+ * a flag byte that is 1 if a new table follows and 0 if the previous table is reused,
+ * the code lengths of the new table (see HuffmanCodebook.writeCodeLengths),
+ * and the codewords of the characters of the block, padded to a byte.
+ * Since the decoder knows the length of each block, the tables have no end-of-file symbol,
+ * except in a block of one distinct character, where it gives the character a codeword of its own.
+ */
+public class BlockHuffmanEncoder extends AbstractEncoder {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private final int blockSize;
+
+    /**
+     * Requires: blockSize > 0
+     */
+    public BlockHuffmanEncoder(int blockSize) {
+        assert blockSize > 0;
+        this.blockSize = blockSize;
+    }
+
+    public BlockHuffmanEncoder() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, text.length());
+        Util.writeVarint(out, blockSize);
+        BitWriter bits = new BitWriter(out);
+        HuffmanCodebook prev = null;
+        int[] prevLengths = null;
+        for (int start = 0; start < text.length(); start += blockSize) {
+            String block = text.substring(start, Math.min(text.length(), start + blockSize));
+            for (char c : block.toCharArray()) {
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Unsupported character: " + c);
+                }
+            }
+            int[] freqs = Util.countFreqs(block);
+            if (block.chars().anyMatch(c -> c != block.charAt(0))) {
+                freqs[128] = 0;  // as with Framing.LENGTH_PREFIX
+            }
+            HuffmanCodebook codebook = HuffmanCodebook.fromFreqs(freqs).canonical();
+            int[] lengths = codebook.codeLengths();
+            if (prev != null && cost(freqs, prevLengths) <= cost(freqs, lengths) + headerBits(lengths)) {
+                out.write(0);
+                codebook = prev;
+            } else {
+                out.write(1);
+                codebook.writeCodeLengths(out);
+                prev = codebook;
+                prevLengths = lengths;
+            }
+            for (char c : block.toCharArray()) {
+                bits.writeBits(codebook.code(c));
+            }
+            bits.alignToByte();
+            bits.flush();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the number of bits needed to encode characters with the given frequencies with the given code lengths,
+     * or Long.MAX_VALUE if some character has no code.
+     * The end-of-file symbol is never written, so it costs nothing whatever its frequency.
+     */
+    private static long cost(int[] freqs, int[] lengths) {
+        long cost = 0;
+        for (int c = 0; c < 128; c++) {
+            if (freqs[c] > 0) {
+                if (lengths[c] == 0) {
+                    return Long.MAX_VALUE;
+                }
+                cost += (long) freqs[c] * lengths[c];
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @return the number of bits taken by writeCodeLengths for a table with the given code lengths
+     */
+    private static long headerBits(int[] lengths) {
+        long bits = 8 * 17;
+        for (int length : lengths) {
+            if (length > 0) {
+                bits += 8;
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,236 @@
+package coding.huffman;
+
+import coding.Util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+
+/**
+ * A list of strings kept compressed in memory, for holding many short strings in much less space than Strings take.
+ * All strings are encoded with one Huffman code over code points (a SparseHuffmanCode), trained on a sample,
+ * and packed into one bit array, each string followed by an end-of-string codeword.
+ * Since the code is shared, there is no per-string setup or header.
+ * A code point that the code has no codeword for is written as an escape codeword followed by the code point in 21 bits,
+ * so any string can be added after training.
+ * <p>
+ * The bit offset of every sampleRate-th string is kept in an index, so get(i) only decodes from the nearest
+ * sample before string i, which is at most sampleRate - 1 strings to skip.
+ * Strings can only be added at the end. This class is not thread-safe.
+ */
+public class CompressedStringList extends AbstractList<String> {
+    public static final int DEFAULT_SAMPLE_RATE = 32;
+    private static final int END = Character.MAX_CODE_POINT + 1;  // end-of-string symbol
+    private static final int ESCAPE = Character.MAX_CODE_POINT + 2;  // the next 21 bits are a code point
+    private static final int CODE_POINT_BITS = 21;
+
+    private final SparseHuffmanCode code;
+    private final int sampleRate;
+    private long[] words = new long[16];  // the bits, most significant bit first
+    private long bitLength = 0;
+    private long[] samples = new long[16];  // samples[j] is the bit offset of string j * sampleRate
+    private int size = 0;
+
+    /**
+     * Creates an empty list whose code is trained on the given sample of strings,
+     * with the bit offset of every sampleRate-th string in the index.
+     * The strings of the sample are not added to the list.
+     * Requires: sampleRate > 0
+     */
+    public CompressedStringList(Collection<String> sample, int sampleRate) {
+        assert sampleRate > 0;
+        Map<Integer, Integer> freqs = new HashMap<>();
+        for (String s : sample) {
+            Util.countCodePoints(s).forEach((codePoint, count) -> freqs.merge(codePoint, count, Integer::sum));
+        }
+        freqs.put(END, Math.max(1, sample.size()));
+        freqs.put(ESCAPE, 1);
+        int[] symbols = new int[freqs.size()];
+        int[] counts = new int[freqs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : freqs.entrySet()) {
+            symbols[i] = entry.getKey();
+            counts[i] = entry.getValue();
+            i++;
+        }
+        this.code = SparseHuffmanCode.fromFreqs(symbols, counts);
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Creates an empty list whose code is trained on the given sample of strings,
+     * with an index sample every DEFAULT_SAMPLE_RATE strings.
+     */
+    public CompressedStringList(Collection<String> sample) {
+        this(sample, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Creates an empty list without training, so every character is escaped.
+     * This is only useful if the strings are not known in advance; otherwise, train the code on a sample.
+     */
+    public CompressedStringList() {
+        this(List.of());
+    }
+
+    /**
+     * Builds a list of the given strings, with a code trained on all of them.
+     */
+    public static CompressedStringList of(Collection<String> strings) {
+        CompressedStringList list = new CompressedStringList(strings);
+        list.addAll(strings);
+        return list;
+    }
+
+    /**
+     * Appends s to the end of the list.
+     */
+    @Override
+    public boolean add(String s) {
+        Objects.requireNonNull(s);
+        if (size % sampleRate == 0) {
+            int j = size / sampleRate;
+            if (j == samples.length) {
+                samples = Arrays.copyOf(samples, Math.max(16, 2 * samples.length));
+            }
+            samples[j] = bitLength;
+        }
+        s.codePoints().forEach(codePoint -> {
+            int length = code.codeLength(codePoint);
+            if (length == 0) {
+                writeBits(code.codeword(ESCAPE), code.codeLength(ESCAPE));
+                writeBits(codePoint, CODE_POINT_BITS);
+            } else {
+                writeBits(code.codeword(codePoint), length);
+            }
+        });
+        writeBits(code.codeword(END), code.codeLength(END));
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public String get(int index) {
+        Objects.checkIndex(index, size);
+        BitCursor cursor = new BitCursor(samples[index / sampleRate]);
+        for (int i = index % sampleRate; i > 0; i--) {
+            skipString(cursor);
+        }
+        return readString(cursor);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes the strings one after another instead of seeking to each.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private final BitCursor cursor = new BitCursor(0);
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                next++;
+                return readString(cursor);
+            }
+        };
+    }
+
+    /**
+     * @return the approximate number of bytes of memory used by the compressed strings and the index
+     */
+    public long sizeInBytes() {
+        return 8L * (words.length + samples.length);
+    }
+
+    /**
+     * Shrinks the internal arrays to the space that is used.
+     */
+    public void trimToSize() {
+        words = Arrays.copyOf(words, (int) ((bitLength + 63) / 64));
+        samples = Arrays.copyOf(samples, (size + sampleRate - 1) / sampleRate);
+    }
+
+    private void writeBits(long value, int length) {
+        for (int b = length - 1; b >= 0; b--) {
+            int word = (int) (bitLength >>> 6);
+            if (word == words.length) {
+                words = Arrays.copyOf(words, Math.max(16, 2 * words.length));
+            }
+            if (((value >>> b) & 1) == 1) {
+                words[word] |= 1L << (63 - (bitLength & 63));
+            }
+            bitLength++;
+        }
+    }
+
+    private String readString(BitCursor cursor) {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int symbol = code.read(cursor);
+            if (symbol == END) {
+                return sb.toString();
+            }
+            sb.appendCodePoint(symbol == ESCAPE ? (int) cursor.readBits(CODE_POINT_BITS) : symbol);
+        }
+    }
+
+    private void skipString(BitCursor cursor) {
+        while (true) {
+            int symbol = code.read(cursor);
+            if (symbol == END) {
+                return;
+            }
+            if (symbol == ESCAPE) {
+                cursor.pos += CODE_POINT_BITS;
+            }
+        }
+    }
+
+    /**
+     * Reads the bits from a position onwards.
+     */
+    private class BitCursor implements IntSupplier {
+        private long pos;
+
+        BitCursor(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int getAsInt() {
+            int bit = (int) (words[(int) (pos >>> 6)] >>> (63 - (pos & 63))) & 1;
+            pos++;
+            return bit;
+        }
+
+        long readBits(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 1) | getAsInt();
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Decodes the output of ContextHuffmanEncoder.
+ * Each table is expanded into a lookup table indexed by the next LOOKUP_BITS bits,
+ * which gives the character and the length of its codeword in one step;
+ * only codewords longer than LOOKUP_BITS are decoded bit by bit.
+ */
+public class ContextHuffmanDecoder extends AbstractDecoder {
+    static final int LOOKUP_BITS = 10;
+
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long length = Util.readVarint(in);
+        if (length > Integer.MAX_VALUE - 8 || length > 8L * in.remaining()) {
+            // every codeword takes at least one bit, so this also bounds the allocation by the input size
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        char[] chars = new char[(int) length];
+        if (length == 0) {
+            return "";
+        }
+        byte[] bitmap = new byte[(ContextHuffmanEncoder.CONTEXTS + 7) / 8];
+        in.get(bitmap);
+        SparseHuffmanCode shared = SparseHuffmanCode.readHeader(in);
+        SparseHuffmanCode[] tables = new SparseHuffmanCode[ContextHuffmanEncoder.CONTEXTS];
+        for (int ctx = 0; ctx < tables.length; ctx++) {
+            tables[ctx] = ((bitmap[ctx / 8] >> (7 - ctx % 8)) & 1) == 1 ? SparseHuffmanCode.readHeader(in) : shared;
+        }
+        Map<SparseHuffmanCode, int[]> lookups = new IdentityHashMap<>();
+        int[][] lookup = new int[tables.length][];
+        for (int ctx = 0; ctx < tables.length; ctx++) {
+            lookup[ctx] = lookups.computeIfAbsent(tables[ctx], ContextHuffmanDecoder::lookupTable);
+        }
+
+        int limit = bytes.length * 8;
+        int[] bit = {in.position() * 8};
+        int prev = ContextHuffmanEncoder.START;
+        for (int i = 0; i < chars.length; i++) {
+            int entry = lookup[prev][peek(bytes, bit[0])];
+            int c;
+            if (entry != 0) {
+                c = entry >>> 8;
+                bit[0] += entry & 0xFF;
+            } else {
+                c = tables[prev].read(() -> getBit(bytes, bit[0]++));
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Failed to decode: unsupported character " + c);
+                }
+            }
+            if (bit[0] > limit) {
+                throw new IllegalArgumentException("Failed to decode: the input ended after " + i + " characters");
+            }
+            chars[i] = (char) c;
+            prev = c;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return for each value of the next LOOKUP_BITS bits, (character << 8) | (length of its codeword),
+     * or 0 if the bits start with a codeword longer than LOOKUP_BITS or with no codeword
+     */
+    private static int[] lookupTable(SparseHuffmanCode code) {
+        int[] table = new int[1 << LOOKUP_BITS];
+        for (int c = 0; c < 128; c++) {
+            int length = code.codeLength(c);
+            if (length > 0 && length <= LOOKUP_BITS) {
+                int first = (int) code.codeword(c) << (LOOKUP_BITS - length);
+                for (int i = 0; i < 1 << (LOOKUP_BITS - length); i++) {
+                    table[first + i] = (c << 8) | length;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the LOOKUP_BITS bits starting at the given bit, padded with 0s past the end of bytes
+     */
+    private static int peek(byte[] bytes, int bit) {
+        int i = bit >>> 3;
+        int window = 0;
+        for (int k = 0; k < 3; k++) {
+            window = (window << 8) | (i + k < bytes.length ? bytes[i + k] & 0xFF : 0);
+        }
+        return (window >>> (24 - LOOKUP_BITS - (bit & 7))) & ((1 << LOOKUP_BITS) - 1);
+    }
+}
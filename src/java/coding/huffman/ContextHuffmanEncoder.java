@@ -0,0 +1,171 @@
+package coding.huffman;
+
+import coding.AbstractEncoder;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A self-describing order-1 Huffman encoder: each character is encoded with a code table
+ * chosen by the character before it, so it gets most of the gain of BigramDirichletModel at Huffman speed.
+ * <p>
+ * A context (previous character) gets a table of its own only if that saves more bits than the table costs
+ * compared with the order-0 code of the whole text. The remaining, rare contexts are merged
+ * into one shared table built from their combined counts.
+ * Encoding and decoding use flat tables indexed by context and character (or by the next bits),
+ * instead of walking a tree.
+ * <p>
+ * Format: the length of the text as a varint; if it is not empty, a bitmap of the 129 contexts
+ * (the 128 characters and START, the context of the first character) that have their own table,
+ * the shared table and then the own tables in order of context (see SparseHuffmanCode.writeHeader),
+ * and the codewords of the characters, padded to a byte.
+ * Since the decoder knows the length, no end-of-file symbol is written.
+ */
+public class ContextHuffmanEncoder extends AbstractEncoder {
+    /**
+     * The context of the first character.
+     */
+    public static final int START = 128;
+    static final int CONTEXTS = 129;
+
+    @Override
+    public byte[] encode(String text) {
+        int[][] freqs = new int[CONTEXTS][128];
+        int prev = START;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+            freqs[prev][c]++;
+            prev = c;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 2 + 16);
+        Util.writeVarint(out, text.length());
+        if (text.isEmpty()) {
+            return out.toByteArray();
+        }
+
+        SparseHuffmanCode[] tables = chooseTables(freqs);
+        SparseHuffmanCode shared = tables[CONTEXTS];
+        byte[] bitmap = new byte[(CONTEXTS + 7) / 8];
+        for (int ctx = 0; ctx < CONTEXTS; ctx++) {
+            if (tables[ctx] != shared) {
+                bitmap[ctx / 8] |= (byte) (1 << (7 - ctx % 8));
+            }
+        }
+        out.writeBytes(bitmap);
+        shared.writeHeader(out);
+        for (int ctx = 0; ctx < CONTEXTS; ctx++) {
+            if (tables[ctx] != shared) {
+                tables[ctx].writeHeader(out);
+            }
+        }
+
+        // codes[ctx * 128 + c] is the codeword of c after ctx, right-aligned, and lengths[ctx * 128 + c] its length
+        long[] codes = new long[CONTEXTS * 128];
+        int[] lengths = new int[CONTEXTS * 128];
+        for (int ctx = 0; ctx < CONTEXTS; ctx++) {
+            for (int c = 0; c < 128; c++) {
+                if (freqs[ctx][c] > 0) {
+                    codes[ctx * 128 + c] = tables[ctx].codeword(c);
+                    lengths[ctx * 128 + c] = tables[ctx].codeLength(c);
+                }
+            }
+        }
+        long acc = 0;  // the last n bits of acc are waiting to be written
+        int n = 0;
+        prev = START;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            long code = codes[prev * 128 + c];
+            int length = lengths[prev * 128 + c];
+            if (length > 32) {
+                // keep acc from overflowing: write the high bits first
+                acc = (acc << (length - 32)) | (code >>> 32);
+                n += length - 32;
+                while (n >= 8) {
+                    n -= 8;
+                    out.write((int) (acc >>> n));
+                }
+                code &= 0xFFFFFFFFL;
+                length = 32;
+            }
+            acc = (acc << length) | code;
+            n += length;
+            while (n >= 8) {
+                n -= 8;
+                out.write((int) (acc >>> n));
+            }
+            prev = c;
+        }
+        if (n > 0) {
+            out.write((int) (acc << (8 - n)));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the table of each context, with the shared table (also used by the contexts without their own)
+     * at index CONTEXTS
+     */
+    private static SparseHuffmanCode[] chooseTables(int[][] freqs) {
+        int[] total = new int[128];
+        for (int[] ctxFreqs : freqs) {
+            for (int c = 0; c < 128; c++) {
+                total[c] += ctxFreqs[c];
+            }
+        }
+        SparseHuffmanCode order0 = code(total);
+        SparseHuffmanCode[] tables = new SparseHuffmanCode[CONTEXTS + 1];
+        int[] rest = new int[128];
+        for (int ctx = 0; ctx < CONTEXTS; ctx++) {
+            SparseHuffmanCode own = code(freqs[ctx]);
+            long gain = -headerBits(own);
+            for (int c = 0; c < 128; c++) {
+                gain += (long) freqs[ctx][c] * (order0.codeLength(c) - own.codeLength(c));
+            }
+            if (gain > 0) {
+                tables[ctx] = own;
+            } else {
+                for (int c = 0; c < 128; c++) {
+                    rest[c] += freqs[ctx][c];
+                }
+            }
+        }
+        SparseHuffmanCode shared = code(rest);
+        for (int ctx = 0; ctx <= CONTEXTS; ctx++) {
+            if (tables[ctx] == null) {
+                tables[ctx] = shared;
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @return the Huffman code for the characters with positive frequencies
+     */
+    private static SparseHuffmanCode code(int[] freqs) {
+        int[] symbols = new int[128];
+        int[] counts = new int[128];
+        int n = 0;
+        for (int c = 0; c < 128; c++) {
+            if (freqs[c] > 0) {
+                symbols[n] = c;
+                counts[n] = freqs[c];
+                n++;
+            }
+        }
+        return SparseHuffmanCode.fromFreqs(Arrays.copyOf(symbols, n), Arrays.copyOf(counts, n));
+    }
+
+    /**
+     * @return the number of bits taken by the header of code
+     */
+    private static long headerBits(SparseHuffmanCode code) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        code.writeHeader(header);
+        return 8L * header.size();
+    }
+}
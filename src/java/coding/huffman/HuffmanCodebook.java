@@ -0,0 +1,345 @@
+package coding.huffman;
+
+import coding.Framing;
+import coding.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The immutable part of Huffman coding: the codeword table used for encoding
+ * and the Huffman tree used for decoding.
+ * Neither is modified after construction, so a single codebook can be shared
+ * by any number of encoders and decoders, including across threads.
+ */
+public final class HuffmanCodebook {
+    /**
+     * The longest codeword supported by canonical codebooks.
+     * Huffman codes for texts shorter than 2^31 characters are at most 45 bits long.
+     */
+    public static final int MAX_CODE_LENGTH = 63;
+
+    private final List<List<Integer>> codes;  // codes.get(c) is the codeword for c, empty if c is unused
+    private final HuffmanTree tree;  // never modified after construction
+
+    private HuffmanCodebook(List<List<Integer>> codes, HuffmanTree tree) {
+        List<List<Integer>> copy = new ArrayList<>();
+        for (List<Integer> code : codes) {
+            copy.add(List.copyOf(code));
+        }
+        this.codes = Collections.unmodifiableList(copy);
+        this.tree = tree;
+    }
+
+    /**
+     * Builds the codebook for the given character frequencies using the greedy Huffman algorithm.
+     * freqs[c] is the frequency of character c in the text to be encoded.
+     * freqs[128] is 0 if the end-of-file symbol is not used (see Framing.LENGTH_PREFIX).
+     * Requires: freqs.length == 129, freqs[128] is 0 or 1, and at least two symbols have nonzero frequencies
+     */
+    public static HuffmanCodebook fromFreqs(int[] freqs) {
+        assert freqs.length == 129 && (freqs[128] == 0 || freqs[128] == 1);
+        // Greedy algorithm: take the two least frequent symbols,
+        // merge the two symbols into a new symbol by creating a new node with those symbols as children.
+        // Repeat until there is only one symbol left.
+        List<LinkedList<Integer>> codes = new ArrayList<>();
+        for (int i = 0; i < freqs.length; i++) {
+            codes.add(new LinkedList<>());
+        }
+
+        // Elements of pq are (group number, freq) pairs, ordered in increasing order by freq
+        PriorityQueue<int[]> pq = new PriorityQueue<>(Comparator.comparingInt(p -> p[1]));
+        // Only characters with nonzero frequencies are added
+        for (int c = 0; c < freqs.length; c++) {
+            if (freqs[c] > 0) {
+                pq.add(new int[]{c, freqs[c]});
+            }
+        }
+        // initially, every symbol is its own node.
+        List<HuffmanTree> trees = new ArrayList<>();
+        for (int i = 0; i < 129; i++) {
+            trees.add(new HuffmanTree((char)i));
+        }
+
+        // Union-find data structure: Each character initially belongs to their own group,
+        // but characters can be merged into the same group.
+        // When merging, the group number of the bigger group becomes the new group number.
+
+        // groupSizes[g] is the size of group g
+        int[] groupSizes = new int[freqs.length];
+        Arrays.fill(groupSizes, 1);
+        // groupToChars[g] is the list of characters belonging to group g
+        List<List<Integer>> groupToChars = new ArrayList<>();
+        for (int i = 0; i < freqs.length; i++) {
+            List<Integer> lst = new ArrayList<>();
+            lst.add(i);
+            groupToChars.add(lst);
+        }
+
+        while (pq.size() > 1) {
+            int[] p1 = pq.poll();
+            int[] p2 = pq.poll();
+            assert p1 != null && p2 != null;
+            int g1 = p1[0];
+            int g2 = p2[0];
+            // prepend a 0 to all chars belonging to group g1 and a 1 to all chars belonging to group g2
+            for (int c : groupToChars.get(g1)) {
+                codes.get(c).addFirst(0);
+            }
+            for (int c : groupToChars.get(g2)) {
+                codes.get(c).addFirst(1);
+            }
+            // create new tree node with g1's tree as left child and g2's tree as right child
+            HuffmanTree newNode = new HuffmanTree(trees.get(g1), trees.get(g2));
+            // merge the two groups; the large group consumes the smaller group
+            if (groupSizes[g1] >= groupSizes[g2]) {
+                // new group name is g1
+                for (int c : groupToChars.get(g2)) {
+                    groupToChars.get(g1).add(c);
+                }
+                groupToChars.get(g2).clear();
+                groupSizes[g1] += groupSizes[g2];
+                groupSizes[g2] = 0;
+                pq.add(new int[]{g1, p1[1] + p2[1]});  // new frequency is the combined frequency of the two groups
+                trees.set(g1, newNode);
+                trees.set(g2, null);
+            } else {
+                // new group name is g2
+                for (int c : groupToChars.get(g1)) {
+                    groupToChars.get(g2).add(c);
+                }
+                groupToChars.get(g1).clear();
+                groupSizes[g2] += groupSizes[g1];
+                groupSizes[g1] = 0;
+                pq.add(new int[]{g2, p1[1] + p2[1]});  // new frequency is the combined frequency of the two groups
+                trees.set(g2, newNode);
+                trees.set(g1, null);
+            }
+        }
+        assert pq.size() == 1;
+        int[] pair = pq.poll();
+        return new HuffmanCodebook(new ArrayList<>(codes), trees.get(pair[0]));
+    }
+
+    /**
+     * Builds the codebook for the given text.
+     * Requires: text is not empty.
+     */
+    public static HuffmanCodebook fromText(String text) {
+        return fromText(text, Framing.END_OF_FILE);
+    }
+
+    /**
+     * Builds the codebook for the given text with the given framing.
+     * With length-prefix framing, the end-of-file symbol gets no codeword,
+     * unless the text has only one distinct character, which then needs a codeword of its own.
+     * Requires: text is not empty.
+     */
+    public static HuffmanCodebook fromText(String text, Framing framing) {
+        assert !text.isEmpty();
+        int[] freqs = Util.countFreqs(text);
+        if (framing == Framing.LENGTH_PREFIX && text.chars().anyMatch(c -> c != text.charAt(0))) {
+            freqs[128] = 0;
+        }
+        return fromFreqs(freqs);
+    }
+
+    /**
+     * Builds the codebook for the contents of the given file.
+     */
+    public static HuffmanCodebook fromFile(File input) {
+        return fromFreqs(Util.countFreqs(input));
+    }
+
+    /**
+     * Creates a codebook from the given codes for each character.
+     * Requires: codes.size() == 129,
+     * where codes[0] to codes[127] are codewords for the ASCII characters 0-127
+     * and codes[128] is the codeword for the end-of-file symbol.
+     * Each codeword is represented as a list of 1s and 0s.
+     * If a symbol is unused, the codeword must be an empty list.
+     */
+    public static HuffmanCodebook fromCodes(List<List<Integer>> codes) {
+        assert codes.size() == 129;
+        return new HuffmanCodebook(codes, HuffmanTree.generateTreeFromCodes(codes));
+    }
+
+    /**
+     * Creates a codebook from the given codes for each character.
+     * Requires: codeMap maps characters to their codewords, represented as a String of 1s and 0s.
+     * Only characters that are used at least once are in the codeMap.
+     * codeMap[128] is the codeword for the end-of-file symbol.
+     */
+    public static HuffmanCodebook fromCodeMap(Map<Character, String> codeMap) {
+        List<List<Integer>> codes = new ArrayList<>();
+        for (char c = 0; c < 129; c++) {
+            List<Integer> code = new ArrayList<>();
+            String codeStr = codeMap.get(c);
+            if (codeStr != null) {
+                for (int i = 0; i < codeStr.length(); i++) {
+                    assert codeStr.charAt(i) == '0' || codeStr.charAt(i) == '1';
+                    code.add(codeStr.charAt(i) == '0' ? 0 : 1);
+                }
+            }
+            codes.add(code);
+        }
+        return fromCodes(codes);
+    }
+
+    /**
+     * Creates the canonical codebook with the given codeword lengths:
+     * symbols are ordered by code length and then by symbol, and each gets the next binary number of its length.
+     * Since the codes follow from the lengths, storing the lengths is enough to store the codebook.
+     * Requires: lengths.length == 129, lengths[c] == 0 if c is unused, and some symbol is used.
+     * lengths[128] is 0 if the end-of-file symbol is not used (see Framing.LENGTH_PREFIX).
+     * @throws IllegalArgumentException if the lengths are too long or cannot form a prefix code
+     */
+    public static HuffmanCodebook fromCodeLengths(int[] lengths) {
+        assert lengths.length == 129 && Arrays.stream(lengths).anyMatch(length -> length > 0);
+        Integer[] symbols = new Integer[lengths.length];
+        for (int c = 0; c < lengths.length; c++) {
+            symbols[c] = c;
+        }
+        Arrays.sort(symbols, Comparator.<Integer>comparingInt(c -> lengths[c]).thenComparingInt(c -> c));
+        List<List<Integer>> codes = new ArrayList<>();
+        for (int c = 0; c < lengths.length; c++) {
+            codes.add(new ArrayList<>());
+        }
+        long code = 0;
+        int prevLength = 0;
+        for (int c : symbols) {
+            int length = lengths[c];
+            if (length == 0) {
+                continue;
+            }
+            if (length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code length " + length + " of " + c + " is too long");
+            }
+            code <<= length - prevLength;
+            prevLength = length;
+            if (code >= 1L << length) {
+                throw new IllegalArgumentException("Code lengths do not form a prefix code");
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                codes.get(c).add((int) (code >> i) & 1);
+            }
+            code++;
+        }
+        return fromCodes(codes);
+    }
+
+    /**
+     * @return the canonical codebook with the same code lengths as this one (see fromCodeLengths).
+     * If there is only one symbol, its codeword is given length 1.
+     */
+    public HuffmanCodebook canonical() {
+        int[] lengths = codeLengths();
+        if (tree.c != null) {
+            lengths[tree.c] = 1;  // the root is the only symbol
+        }
+        return fromCodeLengths(lengths);
+    }
+
+    /**
+     * @return an array of size 129 with the codeword length of each symbol, 0 if unused
+     */
+    public int[] codeLengths() {
+        int[] lengths = new int[codes.size()];
+        for (int c = 0; c < lengths.length; c++) {
+            lengths[c] = codes.get(c).size();
+        }
+        return lengths;
+    }
+
+    /**
+     * Writes the code lengths of this codebook: a bitmap of the used symbols
+     * followed by one byte per used symbol.
+     * Only canonical codebooks are restored exactly by readCodeLengths.
+     */
+    public void writeCodeLengths(OutputStream out) {
+        int[] lengths = codeLengths();
+        byte[] header = new byte[(lengths.length + 7) / 8];
+        for (int c = 0; c < lengths.length; c++) {
+            if (lengths[c] > 0) {
+                header[c / 8] |= (byte) (1 << (7 - c % 8));
+            }
+        }
+        try {
+            out.write(header);
+            for (int length : lengths) {
+                if (length > 0) {
+                    out.write(length);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads code lengths written by writeCodeLengths from the current position of the buffer
+     * and returns the canonical codebook with those lengths.
+     * @throws IllegalArgumentException if the lengths are invalid
+     */
+    public static HuffmanCodebook readCodeLengths(ByteBuffer in) {
+        return readCodeLengths(in, Framing.END_OF_FILE);
+    }
+
+    /**
+     * Like readCodeLengths(in), but with length-prefix framing, the end-of-file symbol may have no codeword.
+     * @throws IllegalArgumentException if the lengths are invalid
+     */
+    public static HuffmanCodebook readCodeLengths(ByteBuffer in, Framing framing) {
+        byte[] bitmap = new byte[(129 + 7) / 8];
+        in.get(bitmap);
+        int[] lengths = new int[129];
+        for (int c = 0; c < lengths.length; c++) {
+            if (((bitmap[c / 8] >> (7 - c % 8)) & 1) == 1) {
+                lengths[c] = in.get() & 0xFF;
+            }
+        }
+        if (framing == Framing.END_OF_FILE && lengths[128] == 0) {
+            throw new IllegalArgumentException("Missing code for the end-of-file symbol");
+        }
+        if (Arrays.stream(lengths).allMatch(length -> length == 0)) {
+            throw new IllegalArgumentException("Empty code table");
+        }
+        return fromCodeLengths(lengths);
+    }
+
+    /**
+     * @return the codeword for c as an unmodifiable list of 1s and 0s,
+     * or an empty list if c is not supported by this codebook.
+     * Character 128 represents end-of-text.
+     */
+    public List<Integer> code(char c) {
+        return codes.get(c);
+    }
+
+    /**
+     * @return the Huffman tree of this codebook.
+     * The tree is shared, so callers in this package must not modify it.
+     */
+    HuffmanTree tree() {
+        return tree;
+    }
+
+    /**
+     * @return a map from character to codeword.
+     * Only shows characters whose codewords are not empty (i.e. they appear at least once).
+     * Character 128 represents end-of-text.
+     */
+    public Map<Character, String> codeTable() {
+        Map<Character, String> map = new HashMap<>();
+        for (char c = 0; c < codes.size(); c++) {
+            if (!codes.get(c).isEmpty()) {
+                map.put(c, codes.get(c).stream().map(String::valueOf).collect(Collectors.joining()));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,167 @@
+package coding.huffman;
+
+import coding.Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe cache of Huffman codebooks, so that texts with a recurring character distribution
+ * don't each pay for counting frequencies into a new tree and code table.
+ * Codebooks are keyed by a fingerprint of the frequencies: each frequency is scaled to a total of 2^FINGERPRINT_BITS
+ * and rounded, keeping characters that appear distinguishable from those that don't.
+ * Texts with the same fingerprint share a codebook.
+ * Optionally, a cached codebook with a different fingerprint is also reused when the estimated cost of the text
+ * under it is within a threshold of the optimal cost, estimated by the entropy of the frequencies.
+ * When the cache is full, the least recently used codebook is evicted.
+ * The cached codebooks are canonical (see HuffmanCodebook.canonical), so they can also be used by SemiStaticHuffmanEncoder.
+ */
+public class HuffmanCodebookCache {
+    public static final int FINGERPRINT_BITS = 8;
+
+    private final double costThreshold;
+    private final Map<String, Entry> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * A cached codebook with the code lengths used to estimate costs.
+     */
+    private record Entry(String key, HuffmanCodebook codebook, int[] lengths) {
+    }
+
+    /**
+     * Creates a cache that holds up to capacity codebooks and reuses a codebook for a text
+     * with a different fingerprint if it costs at most (1 + costThreshold) times the entropy of the text.
+     * Requires: capacity > 0 and costThreshold >= 0
+     */
+    public HuffmanCodebookCache(int capacity, double costThreshold) {
+        assert capacity > 0 && costThreshold >= 0;
+        this.costThreshold = costThreshold;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache that holds up to capacity codebooks and only reuses codebooks with the same fingerprint.
+     */
+    public HuffmanCodebookCache(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @return a codebook for the given frequencies, as returned by Util.countFreqs,
+     * from the cache if possible
+     * Requires: freqs.length == 129 && freqs[128] == 1
+     */
+    public HuffmanCodebook get(int[] freqs) {
+        assert freqs.length == 129 && freqs[128] == 1;
+        String key = fingerprint(freqs);
+        synchronized (this) {
+            Entry entry = cache.get(key);
+            if (entry == null && costThreshold > 0) {
+                entry = closeEnough(freqs);
+                if (entry != null) {
+                    cache.get(entry.key());  // mark it as recently used
+                }
+            }
+            if (entry != null) {
+                hits++;
+                return entry.codebook();
+            }
+            misses++;
+        }
+        // build outside the lock so that other threads can use the cache in the meantime
+        HuffmanCodebook codebook = HuffmanCodebook.fromFreqs(freqs).canonical();
+        synchronized (this) {
+            cache.put(key, new Entry(key, codebook, codebook.codeLengths()));
+        }
+        return codebook;
+    }
+
+    /**
+     * @return a codebook for the given text, from the cache if possible
+     */
+    public HuffmanCodebook get(String text) {
+        return get(Util.countFreqs(text));
+    }
+
+    /**
+     * @return the number of calls to get that were served from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of calls to get that had to build a new codebook
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of codebooks in the cache
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the frequencies scaled to a total of 2^FINGERPRINT_BITS and rounded,
+     * where characters that appear are at least 1, as a string with one character per symbol
+     */
+    private static String fingerprint(int[] freqs) {
+        long total = 0;
+        for (int f : freqs) {
+            total += f;
+        }
+        char[] scaled = new char[freqs.length];
+        for (int c = 0; c < freqs.length; c++) {
+            if (freqs[c] > 0) {
+                scaled[c] = (char) Math.max(1, Math.round((double) freqs[c] * (1 << FINGERPRINT_BITS) / total));
+            }
+        }
+        return new String(scaled);
+    }
+
+    /**
+     * @return the cached codebook with the lowest cost for the frequencies
+     * if that cost is within the threshold of the entropy, or null if there is none
+     */
+    private Entry closeEnough(int[] freqs) {
+        double entropyBits = 0;
+        long total = 0;
+        for (int f : freqs) {
+            total += f;
+        }
+        for (int f : freqs) {
+            if (f > 0) {
+                entropyBits += f * (Math.log((double) total / f) / Math.log(2));
+            }
+        }
+        Entry best = null;
+        long bestCost = Long.MAX_VALUE;
+        for (Entry entry : cache.values()) {
+            long cost = 0;
+            for (int c = 0; c < freqs.length && cost < bestCost; c++) {
+                if (freqs[c] > 0) {
+                    if (entry.lengths()[c] == 0) {
+                        cost = Long.MAX_VALUE;  // the codebook can't encode c
+                    } else {
+                        cost += (long) freqs[c] * entry.lengths()[c];
+                    }
+                }
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = entry;
+            }
+        }
+        return best != null && bestCost <= (1 + costThreshold) * entropyBits ? best : null;
+    }
+}
@@ -0,0 +1,37 @@
+package coding.huffman;
+
+import coding.CodecFactory;
+
+/**
+ * A thread-safe factory for Huffman encoders and decoders that all share one immutable codebook.
+ */
+public class HuffmanCodecFactory implements CodecFactory {
+    private final HuffmanCodebook codebook;
+
+    public HuffmanCodecFactory(HuffmanCodebook codebook) {
+        this.codebook = codebook;
+    }
+
+    /**
+     * Creates a factory whose codebook is built from the given training text.
+     * Only characters that appear in the training text can be encoded.
+     * Requires: trainingText is not empty.
+     */
+    public HuffmanCodecFactory(String trainingText) {
+        this(HuffmanCodebook.fromText(trainingText));
+    }
+
+    public HuffmanCodebook getCodebook() {
+        return codebook;
+    }
+
+    @Override
+    public HuffmanEncoder newEncoder() {
+        return new HuffmanEncoder(codebook);
+    }
+
+    @Override
+    public HuffmanDecoder newDecoder() {
+        return new HuffmanDecoder(codebook);
+    }
+}
@@ -1,8 +1,13 @@
 package coding.huffman;
 
 import coding.AbstractDecoder;
+import coding.Framing;
+import coding.SessionReader;
 import coding.Util;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -12,12 +17,37 @@ import java.util.Map;
  */
 public class HuffmanDecoder extends AbstractDecoder {
     private final HuffmanTree tree;
+    private final Framing framing;
+
+    /**
+     * Creates a Huffman decoder that uses the given codebook and framing.
+     * The codebook is shared rather than copied, so this is cheap.
+     */
+    public HuffmanDecoder(HuffmanCodebook codebook, Framing framing) {
+        this.tree = codebook.tree();
+        this.framing = framing;
+    }
+
+    /**
+     * Creates a Huffman decoder that uses the given codebook for text that ends with the end-of-file symbol.
+     * The codebook is shared rather than copied, so this is cheap.
+     */
+    public HuffmanDecoder(HuffmanCodebook codebook) {
+        this(codebook, Framing.END_OF_FILE);
+    }
+
+    /**
+     * Creates a Huffman decoder using the same codes as the given encoder and the given framing.
+     */
+    public HuffmanDecoder(HuffmanEncoder encoder, Framing framing) {
+        this(encoder.getCodebook(), framing);
+    }
 
     /**
      * Creates a Huffman decoder using the same codes as the given encoder.
      */
     public HuffmanDecoder(HuffmanEncoder encoder) {
-        this.tree = encoder.getTree();
+        this(encoder.getCodebook());
     }
 
     /**
@@ -29,8 +59,7 @@ public class HuffmanDecoder extends AbstractDecoder {
      * If a symbol is unused, the codeword must be an empty list.
      */
     public HuffmanDecoder(List<List<Integer>> codes) {
-        assert codes.size() == 129;
-        this.tree = HuffmanTree.generateTreeFromCodes(codes);
+        this(HuffmanCodebook.fromCodes(codes));
     }
 
     /**
@@ -40,23 +69,14 @@ public class HuffmanDecoder extends AbstractDecoder {
      * codeMap[128] is the codeword for the end-of-file symbol.
      */
     public HuffmanDecoder(Map<Character, String> codeMap) {
-        List<List<Integer>> codes = new ArrayList<>();
-        for (char c = 0; c < 129; c++) {
-            List<Integer> code = new ArrayList<>();
-            String codeStr = codeMap.get(c);
-            if (codeStr != null) {
-                for (int i = 0; i < codeStr.length(); i++) {
-                    assert codeStr.charAt(i) == '0' || codeStr.charAt(i) == '1';
-                    code.add(codeStr.charAt(i) == '0' ? 0 : 1);
-                }
-            }
-            codes.add(code);
-        }
-        this.tree = HuffmanTree.generateTreeFromCodes(codes);
+        this(HuffmanCodebook.fromCodeMap(codeMap));
     }
 
     @Override
     public String decode(byte[] bytes) {
+        if (framing == Framing.LENGTH_PREFIX) {
+            return decodeLength(bytes);
+        }
         StringBuilder sb = new StringBuilder();
         HuffmanTree cur = tree;
         int idx = 0;
@@ -88,9 +108,48 @@ public class HuffmanDecoder extends AbstractDecoder {
         }
     }
 
+    /**
+     * Decodes text with length-prefix framing into an array of exactly the right size.
+     */
+    private String decodeLength(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long length = Util.readVarint(in);
+        if (length > Integer.MAX_VALUE - 8 || length > 8L * in.remaining()) {
+            // every codeword takes at least one bit, so this also bounds the allocation by the input size
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        char[] chars = new char[(int) length];
+        int idx = in.position() * 8;
+        for (int i = 0; i < chars.length; i++) {
+            HuffmanTree cur = tree;
+            while (cur.c == null) {
+                cur = getBit(bytes, idx++) == 0 ? cur.left : cur.right;
+                if (cur == null) {
+                    throw new IllegalArgumentException("Failed to decode at bit " + idx + ": no such codeword");
+                }
+            }
+            if (cur.c == 128) {
+                throw new IllegalArgumentException("Failed to decode at bit " + idx + ": unexpected end-of-file symbol");
+            }
+            chars[i] = cur.c;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * With length-prefix framing, this decodes the whole text up front.
+     */
+    @Override
+    public Reader decodeLazily(byte[] bytes) {
+        if (framing == Framing.LENGTH_PREFIX) {
+            return new StringReader(decode(bytes));
+        }
+        return new SessionReader(new HuffmanDecoderSession(tree, bytes));
+    }
+
     /**
      * Decode the string str and return the result.
-     * Requires: str must be a string of 1s and 0s.
+     * Requires: str must be a string of 1s and 0s, and the framing is END_OF_FILE.
      */
     public String decodeString(String str) {
         List<Integer> encoded = new ArrayList<>();
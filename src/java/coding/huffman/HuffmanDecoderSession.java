@@ -0,0 +1,70 @@
+package coding.huffman;
+
+import coding.AbstractDecoderSession;
+
+/**
+ * Decodes the output of HuffmanEncoderSession incrementally.
+ * A character is returned as soon as the last bit of its codeword has been fed.
+ */
+public class HuffmanDecoderSession extends AbstractDecoderSession {
+    private final HuffmanTree tree;
+    private HuffmanTree cur;  // position in the tree of the codeword being decoded
+    private int segmentChars = 0;  // number of characters decoded in this segment
+    private boolean finished = false;
+    private final boolean singleMessage;  // whether the input is the output of HuffmanEncoder.encode
+
+    /**
+     * Creates a Huffman decoder session with the same codebook as the encoder session.
+     */
+    public HuffmanDecoderSession(HuffmanCodebook codebook) {
+        this(codebook.tree(), false);
+    }
+
+    /**
+     * Creates a session that decodes the output of HuffmanEncoder.encode, i.e. a single message
+     * that ends at the first end-of-file symbol.
+     */
+    HuffmanDecoderSession(HuffmanTree tree, byte[] message) {
+        this(tree, true);
+        feed(message);
+        padWithZeros();
+    }
+
+    private HuffmanDecoderSession(HuffmanTree tree, boolean singleMessage) {
+        this.tree = tree;
+        this.cur = tree;
+        this.singleMessage = singleMessage;
+    }
+
+    @Override
+    public int read() {
+        while (!finished) {
+            int b = nextBit();
+            if (b < 0) {
+                return -1;
+            }
+            cur = b == 0 ? cur.left : cur.right;
+            if (cur == null) {
+                throw new IllegalArgumentException("Failed to decode: bit " + b + " leads outside the Huffman tree");
+            }
+            if (cur.c != null) {
+                char c = cur.c;
+                cur = tree;
+                if (c != 128) {
+                    segmentChars++;
+                    return c;
+                }
+                // reached end-of-file character: the next segment starts at the next byte
+                alignToByte();
+                finished = singleMessage || segmentChars == 0;  // an empty segment marks the end of the stream
+                segmentChars = 0;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+}
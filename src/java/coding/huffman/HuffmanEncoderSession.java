@@ -0,0 +1,78 @@
+package coding.huffman;
+
+import coding.BitWriter;
+import coding.EncoderSession;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A Huffman encoder that accepts its input incrementally and writes the codewords
+ * to the output stream as they are produced.
+ * Each flushed segment is terminated by the codeword of the end-of-file symbol and padded to a whole byte,
+ * and the end of the stream is marked by an empty segment.
+ */
+public class HuffmanEncoderSession implements EncoderSession {
+    private final HuffmanCodebook codebook;
+    private final BitWriter out;
+    private boolean pending = false;  // whether characters have been written since the last flush
+    private boolean finished = false;
+
+    /**
+     * Creates a Huffman encoder session with the given codebook that writes to out.
+     */
+    public HuffmanEncoderSession(HuffmanCodebook codebook, OutputStream out) {
+        this.codebook = codebook;
+        this.out = new BitWriter(out);
+    }
+
+    /**
+     * Creates a session that writes straight to the given channel through a direct buffer.
+     */
+    public HuffmanEncoderSession(HuffmanCodebook codebook, WritableByteChannel out) {
+        this.codebook = codebook;
+        this.out = new BitWriter(out);
+    }
+
+    @Override
+    public void write(char c) {
+        if (finished) {
+            throw new IllegalStateException("Session is already finished");
+        }
+        if (c >= 128 || codebook.code(c).isEmpty()) {
+            throw new IllegalArgumentException("Unsupported character: " + c);
+        }
+        out.writeBits(codebook.code(c));
+        pending = true;
+    }
+
+    @Override
+    public void flush() {
+        if (finished) {
+            throw new IllegalStateException("Session is already finished");
+        }
+        if (pending) {
+            endSegment();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        if (pending) {
+            endSegment();
+        }
+        endSegment();  // an empty segment marks the end of the stream
+        out.flush();
+        finished = true;
+    }
+
+    private void endSegment() {
+        out.writeBits(codebook.code((char) 128));
+        out.alignToByte();
+        pending = false;
+    }
+}
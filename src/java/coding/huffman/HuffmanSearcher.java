@@ -0,0 +1,271 @@
+package coding.huffman;
+
+import coding.Framing;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds a pattern in the output of HuffmanEncoder without decoding it into a String.
+ * <p>
+ * Since the code is fixed, the pattern is translated into the bits of its codewords,
+ * and those bits are searched for with a KMP automaton over bits, driven a byte at a time by a table,
+ * so every bit alignment is covered without shifting the input.
+ * A match of the bits is only an occurrence of the pattern if it starts on a codeword boundary
+ * (from a boundary, a prefix code decodes the matched bits as exactly the pattern).
+ * The boundaries are found by a second automaton that follows the Huffman tree a byte at a time,
+ * which also counts the codewords before each match to give its character offset.
+ * With length-prefix framing, the search starts after the length and ignores the padding after the last character.
+ */
+public class HuffmanSearcher {
+    private final HuffmanCodebook codebook;
+    private final Framing framing;
+    private final HuffmanTree tree;
+    private final Map<HuffmanTree, Integer> nodeIds = new HashMap<>();  // internal nodes of the tree
+    private final List<HuffmanTree> nodes = new ArrayList<>();
+    // for the node where a byte starts and the byte, the node where it ends,
+    // the mask of bits (bit j for the jth bit of the byte, most significant first) where codewords start,
+    // not counting the end-of-file codeword, and the bit where the end-of-file codeword ends (or -1),
+    // or -2 if the bits are not a codeword
+    private static final int EARLIER_END_OF_FILE = 1 << 8;  // the end-of-file codeword started in an earlier byte
+    private final int[] nextNode;
+    private final int[] boundaryMask;
+    private final int[] endOfFile;
+
+    /**
+     * Creates a searcher for text encoded with the given codebook and the end-of-file symbol.
+     */
+    public HuffmanSearcher(HuffmanCodebook codebook) {
+        this(codebook, Framing.END_OF_FILE);
+    }
+
+    /**
+     * Creates a searcher for text encoded by a HuffmanEncoder with the given codebook and framing.
+     */
+    public HuffmanSearcher(HuffmanCodebook codebook, Framing framing) {
+        this.codebook = codebook;
+        this.framing = framing;
+        this.tree = codebook.tree();
+        collectNodes(tree);
+        nextNode = new int[nodes.size() * 256];
+        boundaryMask = new int[nodes.size() * 256];
+        endOfFile = new int[nodes.size() * 256];
+        for (int n = 0; n < nodes.size(); n++) {
+            for (int b = 0; b < 256; b++) {
+                HuffmanTree cur = nodes.get(n);
+                int mask = cur == tree ? 1 : 0;
+                int start = cur == tree ? 0 : -1;  // where the current codeword started, if in this byte
+                int eof = -1;
+                for (int j = 0; j < 8 && eof == -1; j++) {
+                    cur = ((b >> (7 - j)) & 1) == 0 ? cur.left : cur.right;
+                    if (cur == null) {
+                        eof = -2;
+                    } else if (cur.c != null) {
+                        if (cur.c == 128) {
+                            eof = j;
+                            // the end-of-file codeword is not a character
+                            mask = start >= 0 ? mask & ~(1 << start) : mask | EARLIER_END_OF_FILE;
+                        } else if (j < 7) {
+                            mask |= 1 << (j + 1);
+                            start = j + 1;
+                        }
+                        cur = tree;
+                    }
+                }
+                int i = n * 256 + b;
+                nextNode[i] = cur == null ? 0 : nodeIds.get(cur);
+                boundaryMask[i] = mask;
+                endOfFile[i] = eof;
+            }
+        }
+    }
+
+    private void collectNodes(HuffmanTree node) {
+        if (node == null || node.c != null) {
+            return;
+        }
+        nodeIds.put(node, nodes.size());
+        nodes.add(node);
+        collectNodes(node.left);
+        collectNodes(node.right);
+    }
+
+    /**
+     * @return the character offset of the first occurrence of pattern in the text encoded as bytes, or -1 if none
+     */
+    public int indexOf(byte[] encoded, String pattern) {
+        List<Integer> found = find(encoded, pattern, 1);
+        return found.isEmpty() ? -1 : found.get(0);
+    }
+
+    /**
+     * @return the character offsets of all occurrences of pattern, including overlapping ones,
+     * in the text encoded as bytes, in increasing order
+     */
+    public List<Integer> findAll(byte[] encoded, String pattern) {
+        return find(encoded, pattern, Integer.MAX_VALUE);
+    }
+
+    private List<Integer> find(byte[] encoded, String pattern, int limit) {
+        int start = 0;
+        int length = -1;  // the number of characters, if the framing is length-prefix
+        if (framing == Framing.LENGTH_PREFIX) {
+            ByteBuffer in = ByteBuffer.wrap(encoded);
+            long header = Util.readVarint(in);
+            if (header > 8L * in.remaining()) {
+                throw new IllegalArgumentException("Invalid length " + header);
+            }
+            start = in.position();
+            length = (int) header;
+        }
+        List<Integer> bits = new ArrayList<>();
+        for (char c : pattern.toCharArray()) {
+            if (c >= 128 || codebook.code(c).isEmpty()) {
+                return List.of();  // the text can't contain c
+            }
+            bits.addAll(codebook.code(c));
+        }
+        if (bits.isEmpty() && length >= 0) {
+            List<Integer> found = new ArrayList<>();
+            for (int k = 0; k <= length && k < limit; k++) {
+                found.add(k);
+            }
+            return found;
+        }
+        long[] candidates = bits.isEmpty() ? null : matchStarts(encoded, start, bits);
+        return verify(encoded, start, length, candidates, pattern.length(), limit);
+    }
+
+    /**
+     * @return the bit positions where the bits of the pattern start in encoded from byte start, in increasing order
+     */
+    private long[] matchStarts(byte[] encoded, int start, List<Integer> pattern) {
+        int m = pattern.size();
+        // KMP automaton over bits: dfa[bit][state] is the next state, where state m means a match;
+        // after a match, the automaton goes on from the longest proper border of the pattern
+        int[][] dfa = new int[2][m + 1];
+        dfa[pattern.get(0)][0] = 1;
+        int restart = 0;
+        for (int j = 1; j <= m; j++) {
+            dfa[0][j] = dfa[0][restart];
+            dfa[1][j] = dfa[1][restart];
+            if (j < m) {
+                dfa[pattern.get(j)][j] = j + 1;
+                restart = dfa[pattern.get(j)][restart];
+            }
+        }
+        // the same automaton a byte at a time, with the mask of bits of the byte where a match ends
+        int[] next = new int[(m + 1) * 256];
+        int[] matchMask = new int[(m + 1) * 256];
+        for (int s = 0; s <= m; s++) {
+            for (int b = 0; b < 256; b++) {
+                int state = s;
+                int mask = 0;
+                for (int j = 0; j < 8; j++) {
+                    state = dfa[(b >> (7 - j)) & 1][state];
+                    if (state == m) {
+                        mask |= 1 << j;
+                    }
+                }
+                next[s * 256 + b] = state;
+                matchMask[s * 256 + b] = mask;
+            }
+        }
+        long[] starts = new long[16];
+        int count = 0;
+        int state = 0;
+        for (int i = start; i < encoded.length; i++) {
+            int entry = state * 256 + (encoded[i] & 0xFF);
+            int mask = matchMask[entry];
+            while (mask != 0) {
+                int j = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * count);
+                }
+                starts[count++] = 8L * i + j - m + 1;
+            }
+            state = next[entry];
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Keeps the candidate starts that are codeword boundaries before the end of the text,
+     * and converts them to character offsets. The codewords start at byte start.
+     * With length-prefix framing, length is the number of characters, and a candidate is only kept
+     * if the whole pattern (of patternLength characters) fits in the text rather than running into the padding.
+     * Otherwise length is -1 and the text ends with the end-of-file codeword;
+     * then if candidates is null (for the empty pattern), every offset from 0 to the length of the text is an occurrence.
+     */
+    private List<Integer> verify(byte[] encoded, int start, int length, long[] candidates, int patternLength,
+                                 int limit) {
+        List<Integer> found = new ArrayList<>();
+        if (candidates != null && candidates.length == 0) {
+            return found;
+        }
+        int root = nodeIds.get(tree);
+        int c = 0;  // next candidate
+        int chars = 0;  // number of codewords that start before the current byte
+        int node = root;
+        for (int i = start; found.size() < limit; i++) {
+            if (candidates != null && c == candidates.length) {
+                break;
+            }
+            if (i == encoded.length) {
+                if (length >= 0 && (node == root ? chars : chars - 1) >= length) {
+                    break;
+                }
+                throw new IllegalArgumentException(length >= 0
+                        ? "Failed to decode: the input ended before " + length + " characters"
+                        : "Failed to decode: missing end-of-file symbol");
+            }
+            int entry = node * 256 + (encoded[i] & 0xFF);
+            int mask = boundaryMask[entry];
+            int eof = endOfFile[entry];
+            if (eof == -2 && length < 0) {
+                throw new IllegalArgumentException("Failed to decode byte " + i + ": no such codeword");
+            }
+            if (candidates != null) {
+                while (c < candidates.length && candidates[c] < 8L * (i + 1) && found.size() < limit) {
+                    int j = (int) (candidates[c] - 8L * i);
+                    int offset = chars + Integer.bitCount(mask & ((1 << j) - 1));
+                    if ((mask & (1 << j)) != 0 && (length < 0 || offset + patternLength <= length)) {
+                        found.add(offset);
+                    }
+                    c++;
+                }
+            }
+            if (eof != -1 && length >= 0) {
+                // past the last character, the padding may be any bits; before it, they must be codewords
+                int complete = chars + Integer.bitCount(mask & 0xFF) - (eof == -2 || (mask & EARLIER_END_OF_FILE) != 0 ? 1 : 0);
+                if (complete < length) {
+                    throw new IllegalArgumentException("Failed to decode byte " + i
+                            + (eof == -2 ? ": no such codeword" : ": unexpected end-of-file symbol"));
+                }
+                return found;
+            }
+            if (eof >= 0) {
+                if (candidates == null) {
+                    // the text has chars + (characters in this byte) characters, and the empty pattern is at every offset
+                    int textLength = chars + Integer.bitCount(mask & 0xFF) - ((mask & EARLIER_END_OF_FILE) != 0 ? 1 : 0);
+                    for (int k = 0; k <= textLength && k < limit; k++) {
+                        found.add(k);
+                    }
+                }
+                return found;
+            }
+            chars += Integer.bitCount(mask);
+            node = nextNode[entry];
+            if (length >= 0 && (node == root ? chars : chars - 1) >= length) {
+                return found;  // the rest is padding
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,149 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes the output of HuffmanEncoder on several threads, without any index of where symbols start.
+ * <p>
+ * The bitstream is cut into segments at arbitrary bit offsets and each segment is decoded in parallel,
+ * starting at its first bit as if a codeword started there. That guess is usually wrong,
+ * but Huffman codes are self-synchronizing: a decode that starts in the middle of a codeword
+ * soon lands on a true codeword boundary, and from there on it agrees with the true decode.
+ * Each segment remembers where its symbols started, so the segments are stitched together in order:
+ * once the true decode of the previous segments reaches a bit position where this segment's decode also had a symbol,
+ * the rest of this segment's symbols are correct. Only the few bits before that point are decoded again.
+ */
+public class ParallelHuffmanDecoder extends AbstractDecoder {
+    private static final int MIN_SEGMENT_BITS = 1 << 16;  // smaller segments are not worth a thread
+
+    private final HuffmanTree tree;
+    private final int segments;  // number of segments, or 0 to choose from the number of processors
+
+    /**
+     * Creates a parallel Huffman decoder that uses the given codebook.
+     * The number of segments depends on the number of processors and on the length of the bitstream.
+     */
+    public ParallelHuffmanDecoder(HuffmanCodebook codebook) {
+        this.tree = codebook.tree();
+        this.segments = 0;
+    }
+
+    /**
+     * Creates a parallel Huffman decoder that uses the given codebook and cuts the bitstream into
+     * the given number of segments (or fewer if there are fewer bits).
+     * Requires: segments > 0
+     */
+    public ParallelHuffmanDecoder(HuffmanCodebook codebook, int segments) {
+        assert segments > 0;
+        this.tree = codebook.tree();
+        this.segments = segments;
+    }
+
+    /**
+     * The symbols decoded from a segment, starting at the first bit of the segment.
+     * starts[i] is the bit position where symbols[i] starts, and end is the bit position after the last symbol.
+     */
+    private record Segment(char[] symbols, int[] starts, int count, int end) {
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        int totalBits = bytes.length * 8;
+        int k = segments > 0 ? segments : Math.max(1,
+                Math.min(Runtime.getRuntime().availableProcessors(), totalBits / MIN_SEGMENT_BITS));
+        k = Math.max(1, Math.min(k, totalBits));
+        int segmentBits = (int) (((long) totalBits + k - 1) / k);
+        Segment[] decoded = IntStream.range(0, k).parallel()
+                .mapToObj(i -> decodeSegment(bytes, i * segmentBits, (int) Math.min((long) (i + 1) * segmentBits, totalBits)))
+                .toArray(Segment[]::new);
+
+        StringBuilder sb = new StringBuilder();
+        int pos = 0;  // a true codeword boundary, up to which everything has been decoded
+        int[] next = new int[1];
+        for (Segment segment : decoded) {
+            // decode from pos until we reach a boundary that this segment also found
+            int i = Arrays.binarySearch(segment.starts, 0, segment.count, pos);
+            while (i < 0 && pos < segment.end) {
+                char c = decodeSymbol(bytes, pos, next);
+                if (c == 128) {
+                    return sb.toString();
+                }
+                sb.append(c);
+                pos = next[0];
+                i = Arrays.binarySearch(segment.starts, 0, segment.count, pos);
+            }
+            if (i >= 0) {
+                // in sync, so the rest of the segment is correct
+                for (; i < segment.count; i++) {
+                    if (segment.symbols[i] == 128) {
+                        return sb.toString();
+                    }
+                    sb.append(segment.symbols[i]);
+                }
+                pos = segment.end;
+            }
+        }
+        // the end-of-file symbol is after all of the bits, so the stream is truncated or invalid
+        while (pos < totalBits) {
+            char c = decodeSymbol(bytes, pos, next);
+            if (c == 128) {
+                return sb.toString();
+            }
+            sb.append(c);
+            pos = next[0];
+        }
+        throw new IllegalArgumentException("Failed to decode: missing end-of-file symbol");
+    }
+
+    /**
+     * Decodes symbols starting at bit start, until the first symbol that starts at or after bit end.
+     * Stops early at a bit sequence that is not a codeword, which a wrong guess of a boundary can run into
+     * if the code is incomplete.
+     */
+    private Segment decodeSegment(byte[] bytes, int start, int end) {
+        int capacity = Math.max(16, (end - start) / 4);
+        char[] symbols = new char[capacity];
+        int[] starts = new int[capacity];
+        int count = 0;
+        int pos = start;
+        while (pos < end) {
+            HuffmanTree cur = tree;
+            int bit = pos;
+            while (cur != null && cur.c == null) {
+                cur = getBit(bytes, bit++) == 0 ? cur.left : cur.right;
+            }
+            if (cur == null) {
+                break;
+            }
+            if (count == symbols.length) {
+                symbols = Arrays.copyOf(symbols, 2 * count);
+                starts = Arrays.copyOf(starts, 2 * count);
+            }
+            symbols[count] = cur.c;
+            starts[count] = pos;
+            count++;
+            pos = bit;
+        }
+        return new Segment(symbols, starts, count, pos);
+    }
+
+    /**
+     * Decodes the symbol that starts at bit pos and sets next[0] to the bit after it.
+     * @throws IllegalArgumentException if the bits at pos are not a codeword
+     */
+    private char decodeSymbol(byte[] bytes, int pos, int[] next) {
+        HuffmanTree cur = tree;
+        int bit = pos;
+        while (cur.c == null) {
+            cur = getBit(bytes, bit++) == 0 ? cur.left : cur.right;
+            if (cur == null) {
+                throw new IllegalArgumentException("Failed to decode at bit " + bit + ": no such codeword");
+            }
+        }
+        next[0] = bit;
+        return cur.c;
+    }
+}
@@ -0,0 +1,18 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes the output of SemiStaticHuffmanEncoder by reading the code lengths from the header.
+ */
+public class SemiStaticHuffmanDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        HuffmanCodebook codebook = HuffmanCodebook.readCodeLengths(in);
+        return new HuffmanDecoder(codebook).decode(Arrays.copyOfRange(bytes, in.position(), bytes.length));
+    }
+}
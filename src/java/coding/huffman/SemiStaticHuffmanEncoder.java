@@ -0,0 +1,52 @@
+package coding.huffman;
+
+import coding.AbstractEncoder;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * A self-describing Huffman encoder: it builds the Huffman code for each text it encodes,
+ * writes the code lengths of the canonical version of that code in a header,
+ * and then writes the encoded text.
+ * Unlike HuffmanEncoder, the decoder (SemiStaticHuffmanDecoder) needs no code table,
+ * so one encoder can encode any number of texts, including the empty text.
+ */
+public class SemiStaticHuffmanEncoder extends AbstractEncoder {
+    private final HuffmanCodebookCache cache;  // null if codebooks are always built
+
+    /**
+     * Creates an encoder that builds the optimal codebook for each text.
+     */
+    public SemiStaticHuffmanEncoder() {
+        this.cache = null;
+    }
+
+    /**
+     * Creates an encoder that takes codebooks from the given cache,
+     * which can be shared by many encoders.
+     */
+    public SemiStaticHuffmanEncoder(HuffmanCodebookCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        for (char c : text.toCharArray()) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+        }
+        int[] freqs = Util.countFreqs(text);
+        HuffmanCodebook codebook = cache == null ? HuffmanCodebook.fromFreqs(freqs).canonical() : cache.get(freqs);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codebook.writeCodeLengths(out);
+        try {
+            out.write(new HuffmanEncoder(codebook).encode(text));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+}
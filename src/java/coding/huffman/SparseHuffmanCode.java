@@ -0,0 +1,223 @@
+package coding.huffman;
+
+import coding.BitWriter;
+import coding.Util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntSupplier;
+
+/**
+ * A canonical Huffman code over a sparse set of int symbols, such as the Unicode code points of a text.
+ * Unlike HuffmanCodebook, which has a slot for each of the 129 ASCII symbols, everything here is sized
+ * by the number n of symbols actually used: the code lengths are computed in O(n log n) with a priority queue,
+ * and decoding uses the canonical first code of each length instead of a tree.
+ * Instances are immutable.
+ */
+public class SparseHuffmanCode {
+    private final int[] symbols;  // in canonical order: by code length, then by symbol
+    private final int[] lengths;  // lengths[i] is the code length of symbols[i]
+    private final long[] codes;  // codes[i] is the codeword of symbols[i], right-aligned
+    private final Map<Integer, Integer> indexOf = new HashMap<>();  // symbol -> index in symbols
+    // the codewords of length l are firstCode[l], firstCode[l] + 1, ..., for symbols firstIndex[l], firstIndex[l] + 1, ...
+    private final long[] firstCode;
+    private final int[] firstIndex;
+    private final int[] lengthCounts;
+
+    private SparseHuffmanCode(int[] symbols, int[] lengths) {
+        int n = symbols.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> lengths[i]).thenComparingInt(i -> symbols[i]));
+        this.symbols = new int[n];
+        this.lengths = new int[n];
+        this.codes = new long[n];
+        firstCode = new long[HuffmanCodebook.MAX_CODE_LENGTH + 2];
+        firstIndex = new int[HuffmanCodebook.MAX_CODE_LENGTH + 2];
+        lengthCounts = new int[HuffmanCodebook.MAX_CODE_LENGTH + 2];
+        long code = 0;
+        int prevLength = 0;
+        for (int i = 0; i < n; i++) {
+            int length = lengths[order[i]];
+            if (length <= 0 || length > HuffmanCodebook.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Invalid code length " + length);
+            }
+            code <<= length - prevLength;
+            if (length != prevLength) {
+                firstCode[length] = code;
+                firstIndex[length] = i;
+            }
+            prevLength = length;
+            if (code >= 1L << length) {
+                throw new IllegalArgumentException("Code lengths do not form a prefix code");
+            }
+            this.symbols[i] = symbols[order[i]];
+            this.lengths[i] = length;
+            this.codes[i] = code;
+            lengthCounts[length]++;
+            if (indexOf.put(this.symbols[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate symbol " + this.symbols[i]);
+            }
+            code++;
+        }
+    }
+
+    /**
+     * Builds the canonical Huffman code for symbols[i] with frequency freqs[i].
+     * Requires: symbols are distinct, symbols.length == freqs.length, and every frequency is positive.
+     */
+    public static SparseHuffmanCode fromFreqs(int[] symbols, int[] freqs) {
+        assert symbols.length == freqs.length;
+        int n = symbols.length;
+        int[] lengths = new int[n];
+        if (n == 1) {
+            lengths[0] = 1;
+        } else if (n > 1) {
+            // nodes 0 to n - 1 are the leaves and nodes n to 2n - 2 are created by merging two nodes
+            long[] weights = Arrays.copyOf(Arrays.stream(freqs).asLongStream().toArray(), 2 * n - 1);
+            int[] parent = new int[2 * n - 1];
+            PriorityQueue<Integer> pq = new PriorityQueue<>(Comparator.comparingLong(i -> weights[i]));
+            for (int i = 0; i < n; i++) {
+                pq.add(i);
+            }
+            for (int next = n; next < 2 * n - 1; next++) {
+                int a = pq.poll();
+                int b = pq.poll();
+                weights[next] = weights[a] + weights[b];
+                parent[a] = next;
+                parent[b] = next;
+                pq.add(next);
+            }
+            // parents are created after their children, so depths can be filled in from the root down
+            int[] depth = new int[2 * n - 1];
+            for (int i = 2 * n - 3; i >= 0; i--) {
+                depth[i] = depth[parent[i]] + 1;
+            }
+            System.arraycopy(depth, 0, lengths, 0, n);
+        }
+        return new SparseHuffmanCode(symbols, lengths);
+    }
+
+    /**
+     * Builds the canonical Huffman code for the code points of the text.
+     */
+    public static SparseHuffmanCode fromText(String text) {
+        Map<Integer, Integer> freqs = Util.countCodePoints(text);
+        int[] symbols = new int[freqs.size()];
+        int[] counts = new int[freqs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : freqs.entrySet()) {
+            symbols[i] = entry.getKey();
+            counts[i] = entry.getValue();
+            i++;
+        }
+        return fromFreqs(symbols, counts);
+    }
+
+    /**
+     * @return the number of symbols with a codeword
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * @return the length of the codeword of symbol, or 0 if it has none
+     */
+    public int codeLength(int symbol) {
+        Integer i = indexOf.get(symbol);
+        return i == null ? 0 : lengths[i];
+    }
+
+    /**
+     * @return the codeword of symbol, right-aligned in a long, or 0 if it has none
+     */
+    long codeword(int symbol) {
+        Integer i = indexOf.get(symbol);
+        return i == null ? 0 : codes[i];
+    }
+
+    /**
+     * Writes the codeword of symbol.
+     * @throws IllegalArgumentException if symbol has no codeword
+     */
+    public void write(int symbol, BitWriter out) {
+        Integer i = indexOf.get(symbol);
+        if (i == null) {
+            throw new IllegalArgumentException("Unsupported symbol: " + symbol);
+        }
+        for (int b = lengths[i] - 1; b >= 0; b--) {
+            out.writeBit((int) (codes[i] >> b) & 1);
+        }
+    }
+
+    /**
+     * Reads one codeword, taking bits from nextBit, and returns its symbol.
+     * @throws IllegalArgumentException if the bits are not a codeword
+     */
+    public int read(IntSupplier nextBit) {
+        long code = 0;
+        for (int length = 1; length <= HuffmanCodebook.MAX_CODE_LENGTH; length++) {
+            code = (code << 1) | nextBit.getAsInt();
+            if (lengthCounts[length] > 0 && code - firstCode[length] < lengthCounts[length] && code >= firstCode[length]) {
+                return symbols[firstIndex[length] + (int) (code - firstCode[length])];
+            }
+        }
+        throw new IllegalArgumentException("Invalid codeword");
+    }
+
+    /**
+     * Writes the code: the number of symbols, the symbols in increasing order as differences of varints,
+     * and then one byte with the code length of each symbol in the same order.
+     */
+    public void writeHeader(OutputStream out) {
+        int[] sorted = symbols.clone();
+        Arrays.sort(sorted);
+        Util.writeVarint(out, sorted.length);
+        long prev = -1;
+        for (int symbol : sorted) {
+            Util.writeVarint(out, symbol - prev - 1);
+            prev = symbol;
+        }
+        try {
+            for (int symbol : sorted) {
+                out.write(lengths[indexOf.get(symbol)]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a code written by writeHeader from the current position of the buffer.
+     * @throws IllegalArgumentException if the code is invalid
+     */
+    public static SparseHuffmanCode readHeader(ByteBuffer in) {
+        long n = Util.readVarint(in);
+        if (n > in.remaining()) {
+            throw new IllegalArgumentException("Invalid number of symbols " + n);
+        }
+        int[] symbols = new int[(int) n];
+        long prev = -1;
+        for (int i = 0; i < n; i++) {
+            prev += Util.readVarint(in) + 1;
+            if (prev > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid symbol " + prev);
+            }
+            symbols[i] = (int) prev;
+        }
+        int[] lengths = new int[(int) n];
+        for (int i = 0; i < n; i++) {
+            lengths[i] = in.get() & 0xFF;
+        }
+        return new SparseHuffmanCode(symbols, lengths);
+    }
+}
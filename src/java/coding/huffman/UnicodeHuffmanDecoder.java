@@ -0,0 +1,27 @@
+package coding.huffman;
+
+import coding.AbstractDecoder;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the output of UnicodeHuffmanEncoder.
+ */
+public class UnicodeHuffmanDecoder extends AbstractDecoder {
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long count = Util.readVarint(in);
+        SparseHuffmanCode code = SparseHuffmanCode.readHeader(in);
+        if (count > 0 && code.size() == 0) {
+            throw new IllegalArgumentException("Missing code");
+        }
+        StringBuilder sb = new StringBuilder();
+        int[] bit = {in.position() * 8};
+        for (long i = 0; i < count; i++) {
+            sb.appendCodePoint(code.read(() -> getBit(bytes, bit[0]++)));
+        }
+        return sb.toString();
+    }
+}
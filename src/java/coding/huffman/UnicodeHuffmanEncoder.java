@@ -0,0 +1,53 @@
+package coding.huffman;
+
+import coding.AbstractEncoder;
+import coding.BitWriter;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A Huffman encoder for text over any alphabet of Unicode code points, not just ASCII.
+ * It builds a SparseHuffmanCode for the code points of each text,
+ * so the work and memory grow with the number of distinct code points used, not with the alphabet.
+ * <p>
+ * Format: the number of code points in the text as a varint, the code (see SparseHuffmanCode.writeHeader),
+ * and then the codewords of the code points.
+ */
+public class UnicodeHuffmanEncoder extends AbstractEncoder {
+    private final int alphabetSize;
+
+    /**
+     * Creates an encoder for texts whose code points are less than alphabetSize.
+     * Requires: 0 < alphabetSize <= Character.MAX_CODE_POINT + 1
+     */
+    public UnicodeHuffmanEncoder(int alphabetSize) {
+        assert 0 < alphabetSize && alphabetSize <= Character.MAX_CODE_POINT + 1;
+        this.alphabetSize = alphabetSize;
+    }
+
+    /**
+     * The default constructor supports every Unicode code point.
+     */
+    public UnicodeHuffmanEncoder() {
+        this(Character.MAX_CODE_POINT + 1);
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        text.codePoints().forEach(codePoint -> {
+            if (codePoint >= alphabetSize) {
+                throw new IllegalArgumentException("Code point " + codePoint + " is outside of the alphabet");
+            }
+        });
+        SparseHuffmanCode code = SparseHuffmanCode.fromText(text);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, text.codePointCount(0, text.length()));
+        code.writeHeader(out);
+        BitWriter bits = new BitWriter(out);
+        text.codePoints().forEach(codePoint -> code.write(codePoint, bits));
+        bits.alignToByte();
+        bits.flush();
+        return out.toByteArray();
+    }
+}
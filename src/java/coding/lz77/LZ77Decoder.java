@@ -0,0 +1,40 @@
+package coding.lz77;
+
+import coding.AbstractDecoder;
+import coding.CodecFactory;
+import coding.Util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes the output of LZ77Encoder.
+ */
+public class LZ77Decoder extends AbstractDecoder {
+    private final CodecFactory entropyCoder;
+
+    /**
+     * Creates a decoder that decodes each stream with a new decoder from entropyCoder.
+     * Requires: entropyCoder is the same as the one given to the encoder.
+     */
+    public LZ77Decoder(CodecFactory entropyCoder) {
+        this.entropyCoder = entropyCoder;
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int literalsLength = (int) Util.readVarint(in);
+        int lengthsLength = (int) Util.readVarint(in);
+        int distancesLength = (int) Util.readVarint(in);
+        int literalsStart = in.position();
+        int lengthsStart = literalsStart + literalsLength;
+        int distancesStart = lengthsStart + lengthsLength;
+        int extraStart = distancesStart + distancesLength;
+        String literals = entropyCoder.newDecoder().decode(Arrays.copyOfRange(bytes, literalsStart, lengthsStart));
+        String lengths = entropyCoder.newDecoder().decode(Arrays.copyOfRange(bytes, lengthsStart, distancesStart));
+        String distances = entropyCoder.newDecoder().decode(Arrays.copyOfRange(bytes, distancesStart, extraStart));
+        byte[] extraBits = Arrays.copyOfRange(bytes, extraStart, bytes.length);
+        return LZ77Parser.unparse(new LZ77Parser.Streams(literals, lengths, distances, extraBits));
+    }
+}
@@ -0,0 +1,70 @@
+package coding.lz77;
+
+import coding.AbstractEncoder;
+import coding.CodecFactory;
+import coding.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * An encoder that parses the text into literals and matches of earlier substrings with LZ77Parser
+ * and encodes the literal, length and distance streams separately with encoders from an entropy coder,
+ * so each stream gets its own model. The extra bits of the lengths and distances are stored as they are.
+ * This captures repeated substrings, which the AC and Huffman coders on their own can't.
+ * <p>
+ * Format: the lengths of the encoded literal, length and distance streams as varints,
+ * followed by the encoded literal, length and distance streams and then the extra bits of the numbers.
+ */
+public class LZ77Encoder extends AbstractEncoder {
+    private final CodecFactory entropyCoder;
+    private final LZ77Parser parser;
+
+    /**
+     * Creates an encoder that parses with the given parser
+     * and encodes each stream with a new encoder from entropyCoder.
+     * Requires: entropyCoder can encode any ASCII text
+     * (e.g. an adaptive AC model or SemiStaticHuffmanEncoder, but not Huffman codes built for another text).
+     */
+    public LZ77Encoder(CodecFactory entropyCoder, LZ77Parser parser) {
+        this.entropyCoder = entropyCoder;
+        this.parser = parser;
+    }
+
+    /**
+     * Creates an encoder with the default window size and the given effort level.
+     */
+    public LZ77Encoder(CodecFactory entropyCoder, LZ77Parser.Effort effort) {
+        this(entropyCoder, new LZ77Parser(effort));
+    }
+
+    public LZ77Encoder(CodecFactory entropyCoder) {
+        this(entropyCoder, new LZ77Parser());
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        for (char c : text.toCharArray()) {
+            if (c >= 128) {
+                throw new IllegalArgumentException("Unsupported character: " + c);
+            }
+        }
+        LZ77Parser.Streams streams = parser.parse(text);
+        byte[] literals = entropyCoder.newEncoder().encode(streams.literals());
+        byte[] lengths = entropyCoder.newEncoder().encode(streams.lengths());
+        byte[] distances = entropyCoder.newEncoder().encode(streams.distances());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Util.writeVarint(out, literals.length);
+        Util.writeVarint(out, lengths.length);
+        Util.writeVarint(out, distances.length);
+        try {
+            out.write(literals);
+            out.write(lengths);
+            out.write(distances);
+            out.write(streams.extraBits());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,291 @@
+package coding.lz77;
+
+import coding.BitWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a text into literals and matches (copies of an earlier substring) in the style of LZ77,
+ * finding the matches with hash chains: positions are hashed by their first MIN_MATCH characters,
+ * and each position links to the previous position in the window with the same hash.
+ * <p>
+ * The parse is a list of sequences, each a run of literals followed by a match,
+ * stored in three streams so that each can be given its own model:
+ * the literal characters, the lengths (the length of the literal run, then the match length minus MIN_MATCH),
+ * and the match distances. The last sequence has a literal run but no match.
+ * As in Deflate, each number n is written as the symbol for its size class in its stream,
+ * plus extra bits that locate it within the class in a fourth stream that is stored as is.
+ * The classes of v = n + 1 are 1, 2, 3, [4, 5], [6, 7], [8, 11], [12, 15], ...,
+ * each half of a power-of-two range [2^k, 2^(k + 1)) with k - 1 extra bits,
+ * so the symbols are small and skewed while the nearly random low bits cost no modelling.
+ */
+public class LZ77Parser {
+    public static final int MIN_MATCH = 4;
+    public static final int MAX_MATCH = 1 << 16;
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    /**
+     * How hard the parser looks for matches.
+     */
+    public enum Effort {
+        /** Take the first match found and don't index the positions inside matches. */
+        FAST(1, false),
+        /** Search a few candidates and check whether starting a match one character later is better. */
+        DEFAULT(32, true),
+        /** Search many candidates for the best compression. */
+        MAX(4096, true);
+
+        private final int maxChainLength;  // number of earlier positions to try at each position
+        private final boolean lazy;  // whether to check for a longer match at the next position
+
+        Effort(int maxChainLength, boolean lazy) {
+            this.maxChainLength = maxChainLength;
+            this.lazy = lazy;
+        }
+    }
+
+    /**
+     * The three streams of a parse.
+     */
+    public record Streams(String literals, String lengths, String distances, byte[] extraBits) {
+    }
+
+    private static final int HASH_BITS = 15;
+
+    private final int windowSize;
+    private final Effort effort;
+
+    /**
+     * Creates a parser that looks for matches at most windowSize characters back.
+     * Requires: windowSize is a power of two.
+     */
+    public LZ77Parser(int windowSize, Effort effort) {
+        assert windowSize > 0 && (windowSize & (windowSize - 1)) == 0;
+        this.windowSize = windowSize;
+        this.effort = effort;
+    }
+
+    public LZ77Parser(Effort effort) {
+        this(DEFAULT_WINDOW_SIZE, effort);
+    }
+
+    public LZ77Parser() {
+        this(Effort.DEFAULT);
+    }
+
+    private static int hash(char[] text, int i) {
+        int h = text[i] | text[i + 1] << 7 | text[i + 2] << 14 | text[i + 3] << 21;
+        return (h * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    /**
+     * The state of the hash chains while parsing one text.
+     */
+    private class Matcher {
+        private final char[] text;
+        private final int[] head = new int[1 << HASH_BITS];  // last position with each hash, or -1
+        private final int[] prev = new int[windowSize];  // prev[i % windowSize] is the previous position with the hash of i
+        private int inserted = 0;  // positions before this have been inserted
+        private int matchDistance;  // distance of the last match found
+
+        Matcher(char[] text) {
+            this.text = text;
+            Arrays.fill(head, -1);
+        }
+
+        void insertUpTo(int end) {
+            for (; inserted < end && inserted + MIN_MATCH <= text.length; inserted++) {
+                int h = hash(text, inserted);
+                prev[inserted & (windowSize - 1)] = head[h];
+                head[h] = inserted;
+            }
+            inserted = Math.max(inserted, end);
+        }
+
+        /**
+         * @return the length of the longest match for position i that is found, or 0 if there is none,
+         * setting matchDistance to its distance
+         */
+        int findMatch(int i) {
+            if (i + MIN_MATCH > text.length) {
+                return 0;
+            }
+            insertUpTo(i);
+            int maxLength = Math.min(MAX_MATCH, text.length - i);
+            int bestLength = 0;
+            int candidate = head[hash(text, i)];
+            for (int chain = 0; chain < effort.maxChainLength && candidate >= 0 && i - candidate <= windowSize; chain++) {
+                if (text[candidate + bestLength] == text[i + bestLength]) {
+                    int length = 0;
+                    while (length < maxLength && text[candidate + length] == text[i + length]) {
+                        length++;
+                    }
+                    if (length > bestLength) {
+                        bestLength = length;
+                        matchDistance = i - candidate;
+                        if (length == maxLength) {
+                            break;
+                        }
+                    }
+                }
+                int next = prev[candidate & (windowSize - 1)];
+                if (next >= candidate) {
+                    break;  // the slot has been reused by a later position, so the chain leaves the window
+                }
+                candidate = next;
+            }
+            return bestLength >= MIN_MATCH ? bestLength : 0;
+        }
+    }
+
+    /**
+     * Parses the text into literals and matches.
+     */
+    public Streams parse(String text) {
+        char[] chars = text.toCharArray();
+        Matcher matcher = new Matcher(chars);
+        StringBuilder literals = new StringBuilder();
+        StringBuilder lengths = new StringBuilder();
+        StringBuilder distances = new StringBuilder();
+        ByteArrayOutputStream extraOut = new ByteArrayOutputStream();
+        BitWriter extra = new BitWriter(extraOut);
+        int literalStart = 0;
+        int i = 0;
+        while (i < chars.length) {
+            int length = matcher.findMatch(i);
+            if (length == 0) {
+                i++;
+                continue;
+            }
+            int distance = matcher.matchDistance;
+            if (effort.lazy && matcher.findMatch(i + 1) > length) {
+                // a longer match starts at the next character, so emit this character as a literal instead
+                i++;
+                continue;
+            }
+            literals.append(chars, literalStart, i - literalStart);
+            writeNumber(lengths, extra, i - literalStart);
+            writeNumber(lengths, extra, length - MIN_MATCH);
+            writeNumber(distances, extra, distance - 1);
+            i += length;
+            literalStart = i;
+            if (effort.lazy) {
+                matcher.insertUpTo(i);
+            } else {
+                matcher.inserted = Math.max(matcher.inserted, i);  // skip the positions inside the match
+            }
+        }
+        literals.append(chars, literalStart, chars.length - literalStart);
+        writeNumber(lengths, extra, chars.length - literalStart);
+        extra.alignToByte();
+        extra.flush();
+        return new Streams(literals.toString(), lengths.toString(), distances.toString(), extraOut.toByteArray());
+    }
+
+    /**
+     * @return the text that was parsed into the given streams
+     * @throws IllegalArgumentException if the streams are inconsistent
+     */
+    public static String unparse(Streams streams) {
+        StringBuilder sb = new StringBuilder();
+        ExtraBitReader extra = new ExtraBitReader(streams.extraBits());
+        NumberReader lengths = new NumberReader(streams.lengths(), extra);
+        NumberReader distances = new NumberReader(streams.distances(), extra);
+        int literalPos = 0;
+        while (true) {
+            int literalRun = lengths.next();
+            if (literalPos + literalRun > streams.literals().length()) {
+                throw new IllegalArgumentException("Literal run past the end of the literals");
+            }
+            sb.append(streams.literals(), literalPos, literalPos + literalRun);
+            literalPos += literalRun;
+            if (!lengths.hasNext()) {
+                break;
+            }
+            int length = lengths.next() + MIN_MATCH;
+            int distance = distances.next() + 1;
+            if (distance > sb.length()) {
+                throw new IllegalArgumentException("Invalid match distance " + distance);
+            }
+            int start = sb.length() - distance;
+            for (int k = 0; k < length; k++) {
+                sb.append(sb.charAt(start + k));  // the match may overlap the text it produces
+            }
+        }
+        if (literalPos != streams.literals().length() || distances.hasNext()) {
+            throw new IllegalArgumentException("Unused symbols at the end of the streams");
+        }
+        return sb.toString();
+    }
+
+    private static void writeNumber(StringBuilder symbols, BitWriter extra, int n) {
+        int v = n + 1;
+        int k = 31 - Integer.numberOfLeadingZeros(v);  // v is in [2^k, 2^(k + 1))
+        if (k == 0) {
+            symbols.append((char) 0);
+            return;
+        }
+        symbols.append((char) (2 * k - 1 + ((v >> (k - 1)) & 1)));
+        for (int b = k - 2; b >= 0; b--) {
+            extra.writeBit((v >> b) & 1);
+        }
+    }
+
+    /**
+     * Reads the extra bits of the numbers, most significant bit first.
+     */
+    private static class ExtraBitReader {
+        private final byte[] bytes;
+        private long pos = 0;  // index of the next bit
+
+        ExtraBitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int read(int count) {
+            if (pos + count > 8L * bytes.length) {
+                throw new IllegalArgumentException("Not enough extra bits");
+            }
+            int n = 0;
+            for (int i = 0; i < count; i++, pos++) {
+                n = (n << 1) | ((bytes[(int) (pos >> 3)] >> (7 - (pos & 7))) & 1);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Reads the numbers written by writeNumber from a stream of symbols and the extra bits.
+     */
+    private static class NumberReader {
+        private final String symbols;
+        private final ExtraBitReader extra;
+        private int pos = 0;
+
+        NumberReader(String symbols, ExtraBitReader extra) {
+            this.symbols = symbols;
+            this.extra = extra;
+        }
+
+        boolean hasNext() {
+            return pos < symbols.length();
+        }
+
+        int next() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Truncated stream");
+            }
+            int symbol = symbols.charAt(pos++);
+            if (symbol == 0) {
+                return 0;
+            }
+            int k = (symbol + 1) / 2;
+            if (k > 30) {
+                throw new IllegalArgumentException("Invalid number symbol " + symbol);
+            }
+            int v = (2 | ((symbol + 1) & 1)) << (k - 1) | extra.read(k - 1);
+            return v - 1;
+        }
+    }
+}
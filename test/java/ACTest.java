@@ -1,11 +1,16 @@
 import coding.ac.*;
 import coding.Decoder;
 import coding.Encoder;
+import coding.Framing;
+import coding.Util;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ACTest {
     @Test
@@ -161,4 +166,157 @@ class ACTest {
         testAll(() -> new ACEncoder(new BigramDirichletModel(0.01)),
                 () -> new ACDecoder((new BigramDirichletModel(0.01))));
     }
+
+    @Test
+    public void testMixing() {
+        testAll(() -> new ACEncoder(new MixingModel(new DirichletModel(0.01), new BigramDirichletModel(0.01))),
+                () -> new ACDecoder(new MixingModel(new DirichletModel(0.01), new BigramDirichletModel(0.01))));
+        testAll(() -> new ACEncoder(new MixingModel(0.5, new FixedProbModel(), new DirichletModel(), new BigramDirichletModel())),
+                () -> new ACDecoder(new MixingModel(0.5, new FixedProbModel(), new DirichletModel(), new BigramDirichletModel())));
+
+        // the mixture should do about as well as the better of its models
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        int bigramSize = new ACEncoder(new BigramDirichletModel(0.01)).encode(alice).length;
+        MixingModel mixing = new MixingModel(new DirichletModel(0.01), new BigramDirichletModel(0.01));
+        int mixingSize = new ACEncoder(mixing).encode(alice).length;
+        assertTrue(mixingSize <= bigramSize * 1.01);
+        assertTrue(mixing.getWeights()[1] > mixing.getWeights()[0]);
+    }
+
+    @Test
+    public void testContextModel() {
+        testAll(() -> new ACEncoder(new ContextModel(2, 2.0)), () -> new ACDecoder(new ContextModel(2, 2.0)));
+        // a small store replaces keys, and the decoder has to make the same replacements as the encoder
+        testAll(() -> new ACEncoder(new ContextModel(3, 2.0, new ContextCountStore(1 << 14))),
+                () -> new ACDecoder(new ContextModel(3, 2.0, new ContextCountStore(1 << 14))));
+
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        ContextCountStore store = new ContextCountStore(1 << 14);
+        new ACEncoder(new ContextModel(3, 2.0, store)).encode(alice);
+        assertTrue(store.memoryUsed() <= 1 << 14);
+        assertTrue(store.size() <= store.capacity());
+        assertTrue(store.replacements() > 0);
+
+        // the default store only grows to the contexts that a text actually has
+        ContextCountStore small = new ContextCountStore();
+        new ACEncoder(new ContextModel(3, 2.0, small)).encode("Mary had a little lamb.");
+        assertTrue(small.memoryUsed() < 1 << 16);
+
+        // longer contexts predict English text better than the previous character alone
+        int bigramSize = new ACEncoder(new BigramDirichletModel(0.01)).encode(alice).length;
+        int order3Size = new ACEncoder(new ContextModel(3, 2.0)).encode(alice).length;
+        assertTrue(order3Size < bigramSize * 0.8);
+    }
+
+    @Test
+    public void testFraming() {
+        testAll(() -> new ACEncoder(new FixedProbModel(), Framing.LENGTH_PREFIX),
+                () -> new ACDecoder(new FixedProbModel(), Framing.LENGTH_PREFIX));
+        testAll(() -> new ACEncoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX),
+                () -> new ACDecoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX));
+        testAll(() -> new ACEncoder(new BigramDirichletModel(), Framing.LENGTH_PREFIX),
+                () -> new ACDecoder(new BigramDirichletModel(), Framing.LENGTH_PREFIX));
+        testLazyDecode(() -> new ACEncoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX),
+                () -> new ACDecoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX));
+        // a run can take far less than a bit per character, so the output grows past its initial capacity
+        String run = "a".repeat(100000);
+        byte[] runEncoded = new ACEncoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX).encode(run);
+        assertTrue(runEncoded.length * 64 < run.length());
+        assertEquals(run, new ACDecoder(new DirichletModel(0.01), Framing.LENGTH_PREFIX).decode(runEncoded));
+
+        // the fixed model gives the end-of-file symbol the same probability as every character
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        int eofSize = new ACEncoder(new FixedProbModel()).encode(alice).length;
+        int lengthPrefixSize = new ACEncoder(new FixedProbModel(), Framing.LENGTH_PREFIX).encode(alice).length;
+        assertTrue(lengthPrefixSize < eofSize);
+    }
+
+    @Test
+    public void testCodecFactory() {
+        ACCodecFactory fixed = ACCodecFactory.fixed();
+        testAll(fixed::newEncoder, fixed::newDecoder);
+        TestUtil.assertConcurrentRoundTrips(fixed);
+
+        String training = "the quick brown fox jumps over the lazy dog";
+        ACCodecFactory dirichlet = ACCodecFactory.dirichlet(0.01, training);
+        testAll(dirichlet::newEncoder, dirichlet::newDecoder);
+        TestUtil.assertConcurrentRoundTrips(dirichlet);
+
+        ACCodecFactory bigram = ACCodecFactory.bigram(0.01, training);
+        testAll(bigram::newEncoder, bigram::newDecoder);
+        TestUtil.assertConcurrentRoundTrips(bigram);
+        assertThrows(IllegalArgumentException.class, () -> ACCodecFactory.bigram(0.01, "caf\u00e9 au lait"));
+        assertThrows(IllegalArgumentException.class, () -> ACCodecFactory.dirichlet(0.01, "caf\u00e9 au lait"));
+
+        TestUtil.assertBatchRoundTrip(dirichlet);
+        TestUtil.assertBatchRoundTrip(fixed);
+    }
+
+    @Test
+    public void testSession() {
+        TestUtil.assertSessionRoundTrip(out -> new ACEncoderSession(new FixedProbModel(), out),
+                () -> new ACDecoderSession(new FixedProbModel()));
+        TestUtil.assertSessionRoundTrip(out -> new ACEncoderSession(new DirichletModel(0.01), out),
+                () -> new ACDecoderSession(new DirichletModel(0.01)));
+        TestUtil.assertSessionRoundTrip(out -> new ACEncoderSession(new BigramDirichletModel(), out),
+                () -> new ACDecoderSession(new BigramDirichletModel()));
+    }
+
+    @Test
+    public void testChannels() {
+        TestUtil.assertChannelRoundTrip(out -> new ACEncoderSession(new DirichletModel(0.01), out),
+                () -> new ACDecoderSession(new DirichletModel(0.01)));
+        TestUtil.assertChannelRoundTrip(out -> new ACEncoderSession(new BigramDirichletModel(), out),
+                () -> new ACDecoderSession(new BigramDirichletModel()));
+    }
+
+    @Test
+    public void testSemiStatic() {
+        testAll(SemiStaticACEncoder::new, SemiStaticACDecoder::new);
+        testAll(() -> new SemiStaticACEncoder(16), SemiStaticACDecoder::new);
+
+        // quantized frequencies sum to the power of two and keep every symbol that appears
+        int[] counts = Util.countFreqs(TestUtil.getRandomString(100000) + "aaaaaaaaaaaaaaaaaaaa");
+        int[] freqs = QuantizedFreqTable.quantize(counts, 12);
+        int sum = 0;
+        for (int c = 0; c < counts.length; c++) {
+            assertEquals(counts[c] > 0, freqs[c] > 0);
+            sum += freqs[c];
+        }
+        assertEquals(1 << 12, sum);
+
+        // a precision too small for the number of symbols is rejected instead of looping forever
+        int[] tight = QuantizedFreqTable.quantize(Util.countFreqs("\0\1\1\1\1\1\1\2"), 2);
+        assertEquals(List.of(1, 1, 1, 1), List.of(tight[0], tight[1], tight[2], tight[128]));
+        assertThrows(IllegalArgumentException.class, () -> new SemiStaticACEncoder(3).encode("abcdefgh"));
+        assertThrows(IllegalArgumentException.class, () -> new SemiStaticACEncoder(0));
+        assertThrows(IllegalArgumentException.class, () -> new SemiStaticACEncoder(QuantizedFreqTable.MAX_PRECISION + 1));
+        assertEquals("abcdefg", new SemiStaticACDecoder().decode(new SemiStaticACEncoder(3).encode("abcdefg")));
+
+        // characters outside ASCII are rejected before they are counted
+        assertThrows(IllegalArgumentException.class, () -> new SemiStaticACEncoder().encode("abc\u0080"));
+        assertThrows(IllegalArgumentException.class, () -> new SemiStaticACEncoder().encode("caf\u00e9"));
+    }
+
+    private void testLazyDecode(EncoderGenerator encGen, DecoderGenerator decGen) {
+        for (String str : TestUtil.TEST_STRINGS) {
+            byte[] encoded = encGen.generate().encode(str);
+            assertEquals(str.substring(0, Math.min(3, str.length())), decGen.generate().decodePrefix(encoded, 3));
+            assertEquals(str, decGen.generate().decodePrefix(encoded, Integer.MAX_VALUE));
+        }
+
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        byte[] encoded = encGen.generate().encode(alice);
+        assertEquals(alice.substring(0, 200), decGen.generate().decodePrefix(encoded, 200));
+        assertEquals(alice, decGen.generate().decodePrefix(encoded, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testLazyDecode() {
+        testLazyDecode(ACEncoder::new, ACDecoder::new);
+        testLazyDecode(() -> new ACEncoder(new DirichletModel(0.01)),
+                () -> new ACDecoder(new DirichletModel(0.01)));
+        testLazyDecode(() -> new ACEncoder(new BigramDirichletModel(0.01)),
+                () -> new ACDecoder(new BigramDirichletModel(0.01)));
+    }
 }
@@ -0,0 +1,119 @@
+import coding.CodecFactory;
+import coding.ac.ACCodecFactory;
+import coding.ac.ACEncoder;
+import coding.ac.BigramDirichletModel;
+import coding.ac.ProbModel;
+import coding.auto.AutoDecoder;
+import coding.auto.AutoEncoder;
+import coding.auto.BlockCodec;
+import coding.auto.TrialDecoder;
+import coding.auto.TrialEncoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoTest {
+    private static String getRandomBytes(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) random.nextInt(128));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRoundTrips() {
+        for (AutoEncoder.Policy policy : AutoEncoder.Policy.values()) {
+            TestUtil.assertRoundTrips(CodecFactory.of(() -> new AutoEncoder(policy), AutoDecoder::new));
+            TestUtil.assertRoundTrips(CodecFactory.of(() -> new AutoEncoder(policy, 1000), AutoDecoder::new));
+        }
+        String mixed = "a".repeat(5000) + getRandomBytes(5000, 1) + "\0".repeat(5000);
+        assertEquals(mixed, new AutoDecoder().decode(new AutoEncoder(AutoEncoder.Policy.SMALLEST, 5000).encode(mixed)));
+        assertThrows(IllegalArgumentException.class, () -> new AutoEncoder().encode("café"));
+    }
+
+    @Test
+    public void testChoice() {
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt")).substring(0, AutoEncoder.DEFAULT_BLOCK_SIZE);
+        String allA = "a".repeat(AutoEncoder.DEFAULT_BLOCK_SIZE);
+        String random = getRandomBytes(AutoEncoder.DEFAULT_BLOCK_SIZE, 2);
+
+        AutoEncoder smallest = new AutoEncoder(AutoEncoder.Policy.SMALLEST);
+        assertEquals(BlockCodec.BIGRAM, smallest.choose(alice));
+        assertNotEquals(BlockCodec.HUFFMAN, smallest.choose(allA));
+        assertNotEquals(BlockCodec.RAW, smallest.choose(random));
+
+        // the fast policy avoids slow models and stores blocks raw unless a codec saves enough
+        AutoEncoder fastest = new AutoEncoder(AutoEncoder.Policy.FASTEST);
+        assertEquals(BlockCodec.HUFFMAN, fastest.choose(alice));
+        assertEquals(BlockCodec.RAW, fastest.choose(random));
+    }
+
+    @Test
+    public void testCompression() {
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        int bigramSize = new ACEncoder(new BigramDirichletModel(0.01)).encode(alice).length;
+        assertTrue(new AutoEncoder(AutoEncoder.Policy.SMALLEST).encode(alice).length < bigramSize * 1.05);
+
+        // blocks with different statistics get different codecs, which beats any single codec
+        int blockSize = 10000;
+        String mixed = "a".repeat(blockSize) + getRandomBytes(blockSize, 3) + alice.substring(0, blockSize);
+        int autoSize = new AutoEncoder(AutoEncoder.Policy.SMALLEST, blockSize).encode(mixed).length;
+        assertTrue(autoSize < new ACEncoder(new BigramDirichletModel(0.01)).encode(mixed).length);
+        assertTrue(autoSize < new SemiStaticHuffmanEncoder().encode(mixed).length);
+    }
+
+    @Test
+    public void testTrial() {
+        List<CodecFactory> candidates = TrialEncoder.defaultCandidates();
+        TestUtil.assertRoundTrips(CodecFactory.of(TrialEncoder::new, TrialDecoder::new));
+        TestUtil.assertRoundTrips(CodecFactory.of(() -> new TrialEncoder(candidates, 1000, 0), () -> new TrialDecoder(candidates)));
+        assertThrows(IllegalArgumentException.class, () -> new TrialEncoder().encode("café"));
+        // a candidate that rejects the input is dropped, but a candidate with a bug is not hidden
+        CodecFactory huffman = candidates.get(0);
+        CodecFactory rejecting = new ACCodecFactory(() -> failingModel(new IllegalArgumentException("unsupported")));
+        assertEquals(1, new TrialEncoder(List.of(rejecting, huffman)).choose("abc"));
+        CodecFactory buggy = new ACCodecFactory(() -> failingModel(new IllegalStateException("bug")));
+        assertThrows(IllegalStateException.class, () -> new TrialEncoder(List.of(huffman, buggy)).encode("abc"));
+
+        // the bigram model with alpha = 0.01 (candidate 5) does best on English text
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        TrialEncoder encoder = new TrialEncoder();
+        assertEquals(5, encoder.choose(alice.substring(0, TrialEncoder.DEFAULT_BLOCK_SIZE)));
+
+        // without dropping candidates early, each block is as small as its best candidate;
+        // dropping clearly losing candidates hardly costs anything
+        int exhaustiveSize = new TrialEncoder(candidates, TrialEncoder.DEFAULT_BLOCK_SIZE, Double.POSITIVE_INFINITY)
+                .encode(alice).length;
+        int best = Integer.MAX_VALUE;
+        for (CodecFactory candidate : candidates) {
+            best = Math.min(best, candidate.encode(alice.substring(0, TrialEncoder.DEFAULT_BLOCK_SIZE)).length);
+        }
+        // plus 1 byte for the number of blocks, 3 bytes for the length of the record and 1 byte for the tag
+        assertEquals(best + 5, new TrialEncoder(candidates, TrialEncoder.DEFAULT_BLOCK_SIZE, Double.POSITIVE_INFINITY)
+                .encode(alice.substring(0, TrialEncoder.DEFAULT_BLOCK_SIZE)).length);
+        assertTrue(encoder.encode(alice).length <= exhaustiveSize * 1.01);
+    }
+
+    /**
+     * @return a model that throws e whenever it is asked for probabilities
+     */
+    private static ProbModel failingModel(RuntimeException e) {
+        return new ProbModel() {
+            @Override
+            public void update(char c) {
+            }
+
+            @Override
+            public double[] getProbs() {
+                throw e;
+            }
+        };
+    }
+}
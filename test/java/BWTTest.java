@@ -0,0 +1,83 @@
+import coding.CodecFactory;
+import coding.ac.ACCodecFactory;
+import coding.ac.SemiStaticACDecoder;
+import coding.ac.SemiStaticACEncoder;
+import coding.bwt.*;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BWTTest {
+    @Test
+    public void testSuffixArray() {
+        for (int i = 0; i < 2000; i++) {
+            String text = TestUtil.getRandomABCString(i % 50);
+            int[] sa = SuffixArray.of(text.toCharArray());
+            Integer[] expected = new Integer[text.length()];
+            for (int j = 0; j < expected.length; j++) {
+                expected[j] = j;
+            }
+            Arrays.sort(expected, (a, b) -> text.substring(a).compareTo(text.substring(b)));
+            assertArrayEquals(Arrays.stream(expected).mapToInt(j -> j).toArray(), sa, text);
+        }
+    }
+
+    @Test
+    public void testTransform() {
+        char[] last = new char[6];
+        int primary = BurrowsWheeler.transform("banana".toCharArray(), last);
+        assertEquals("annbaa", new String(last));
+        assertEquals(4, primary);
+        for (String str : TestUtil.TEST_STRINGS) {
+            char[] block = str.toCharArray();
+            last = new char[block.length];
+            primary = BurrowsWheeler.transform(block, last);
+            assertEquals(str, new String(BurrowsWheeler.inverse(last, primary)));
+        }
+    }
+
+    @Test
+    public void testMoveToFront() {
+        boolean[] used = new boolean[128];
+        used['a'] = used['b'] = used['n'] = true;
+        // positions 0 0 1 2 2 0 0 0 0 0 -> runs of 2 (RUN_B) and 5 (RUN_A RUN_B), other positions shifted up by one
+        String symbols = MoveToFront.encode("aabnaaaaaa".toCharArray(), used, true);
+        assertEquals("\u0001\u0002\u0003\u0003\u0000\u0001", symbols);
+        assertEquals("aabnaaaaaa", new String(MoveToFront.decode(symbols, used, true)));
+        assertEquals("aabnaaaaaa", new String(MoveToFront.decode(
+                MoveToFront.encode("aabnaaaaaa".toCharArray(), used, false), used, false)));
+    }
+
+    @Test
+    public void testRoundTrips() {
+        CodecFactory[] entropyCoders = {
+                ACCodecFactory.dirichlet(0.01),
+                CodecFactory.of(SemiStaticACEncoder::new, SemiStaticACDecoder::new),
+                CodecFactory.of(SemiStaticHuffmanEncoder::new, SemiStaticHuffmanDecoder::new)
+        };
+        for (CodecFactory entropyCoder : entropyCoders) {
+            TestUtil.assertRoundTrips(CodecFactory.of(() -> new BWTEncoder(entropyCoder),
+                    () -> new BWTDecoder(entropyCoder)));
+            // small blocks, so that large texts are split and coded in parallel
+            TestUtil.assertRoundTrips(CodecFactory.of(() -> new BWTEncoder(entropyCoder, 1000),
+                    () -> new BWTDecoder(entropyCoder)));
+        }
+        String allA = "a".repeat(100000);
+        CodecFactory dirichlet = ACCodecFactory.dirichlet(1);
+        assertEquals(allA, new BWTDecoder(dirichlet).decode(new BWTEncoder(dirichlet, 16384).encode(allA)));
+    }
+
+    @Test
+    public void testCompression() {
+        // the transform captures context that order-0 coding can't
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        CodecFactory dirichlet = ACCodecFactory.dirichlet(0.01);
+        int bwtSize = new BWTEncoder(dirichlet).encode(alice).length;
+        assertTrue(bwtSize < dirichlet.encode(alice).length * 0.6);
+    }
+}
@@ -6,8 +6,6 @@ import coding.huffman.HuffmanEncoder;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 
 /**
  * A class for benchmarking different coding schemes.
@@ -20,17 +18,27 @@ public class Benchmarking {
         File biased99 = new File("sampleTexts/generated/biased_random_99.txt");
         File allA = new File("sampleTexts/generated/all_a.txt");
         File randomBits = new File("sampleTexts/generated/random_bits.txt");
+        File zipf = new File("sampleTexts/generated/zipf.txt");
+        File markov = new File("sampleTexts/generated/markov.txt");
+        File drifting = new File("sampleTexts/generated/drifting.txt");
+        File repeats = new File("sampleTexts/generated/repeats.txt");
         File alice = new File("sampleTexts/alice_full.txt");
         File english_words = new File("sampleTexts/english_words.txt");
-        // Generate random strings
-        generateUnifRandomASCII(1000000, unifRandom);
-        generateBiasedRandom(1000000, biased50, 'a', 0.5);
-        generateBiasedRandom(1000000, biased99, 'a', 0.99);
-        generateBiasedRandom(1000000, allA, 'a', 1);
-        generateRandomBits(1000000, randomBits, 0.5);
+        // Generate random strings, the same in every run
+        new File("sampleTexts/generated").mkdirs();
+        CorpusGenerator.uniform(1).write(unifRandom, 1000000);
+        CorpusGenerator.biased(2, 'a', 0.5).write(biased50, 1000000);
+        CorpusGenerator.biased(3, 'a', 0.99).write(biased99, 1000000);
+        CorpusGenerator.biased(4, 'a', 1).write(allA, 1000000);
+        CorpusGenerator.bits(5, 0.5).write(randomBits, 1000000);
+        CorpusGenerator.zipf(6, 95, 1).write(zipf, 1000000);
+        CorpusGenerator.markov(7, TestUtil.readText(alice), 3).write(markov, 1000000);
+        CorpusGenerator.drifting(8, 200000).write(drifting, 1000000);
+        CorpusGenerator.repeats(9, CorpusGenerator.markov(10, TestUtil.readText(alice), 2), 0.01, 20, 200, 1 << 15)
+                .write(repeats, 1000000);
 
         File[] files = {
-                unifRandom, biased50, biased99, allA, randomBits, alice, english_words
+                unifRandom, biased50, biased99, allA, randomBits, zipf, markov, drifting, repeats, alice, english_words
         };
         for (File file : files) {
             encDecHuffman(file);
@@ -40,65 +48,6 @@ public class Benchmarking {
         }
     }
 
-    /**
-     * Generates an independent, uniformly random text with ASCII characters (0-127)
-     * with the given length and writes the text to the output file.
-     */
-    private void generateUnifRandomASCII(int length, File output) {
-        try {
-            FileWriter writer = new FileWriter(output);
-            for (int i = 0; i < length; i++) {
-                writer.write((char) (Math.random() * 128));
-            }
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    /**
-     * Generates an independent, biased random text with '1's and '0's
-     * with the given length and writes the text to the output file.
-     * The probability of getting a 1 is prob1.
-     */
-    private void generateRandomBits(int length, File output, double prob1) {
-        try {
-            FileWriter writer = new FileWriter(output);
-            for (int i = 0; i < length; i++) {
-                writer.write(Math.random() < prob1 ? '1' : '0');
-            }
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    /**
-     * Generates an independent, biased random text with ASCII characters (0-127) with the given length
-     * and write the text to the output file.
-     * The biased character appears with probability prob while the rest of the characters
-     * appear with equal probability.
-     */
-    private void generateBiasedRandom(int length, File output, char biased, double prob) {
-        try {
-            FileWriter writer = new FileWriter(output);
-            for (int i = 0; i < length; i++) {
-                if (Math.random() < prob) {
-                    writer.write(biased);
-                } else {
-                    char c = (char) (Math.random() * 128);
-                    while (c == biased) {
-                        c = (char) (Math.random() * 128);
-                    }
-                    writer.write(c);
-                }
-            }
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     /**
      * Encodes the given file using Huffman encoding, then decodes it,
      * then compares that the decoded content is equal to the original.
@@ -0,0 +1,339 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A seeded source of synthetic ASCII text for benchmarks and regression tests.
+ * Each generator is one stream of text that is fully determined by its seed and parameters,
+ * so the same corpus can be generated again in a later run instead of being stored.
+ * The text is generated into a byte buffer and written in large chunks,
+ * so files of several GB can be streamed without holding them in memory.
+ */
+public abstract class CorpusGenerator {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int DRIFT_STEP = 256;
+
+    protected final SplittableRandom random;
+
+    protected CorpusGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Generates the next len characters of the stream into buf[off, off + len), one byte per character.
+     */
+    protected abstract void fill(byte[] buf, int off, int len);
+
+    /**
+     * @return the next length characters of the stream
+     */
+    public String generate(int length) {
+        byte[] buf = new byte[length];
+        fill(buf, 0, length);
+        return new String(buf, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes the next length characters of the stream to out, which is not closed.
+     */
+    public void write(OutputStream out, long length) {
+        byte[] buf = new byte[(int) Math.min(CHUNK_SIZE, length)];
+        try {
+            for (long written = 0; written < length; ) {
+                int n = (int) Math.min(buf.length, length - written);
+                fill(buf, 0, n);
+                out.write(buf, 0, n);
+                written += n;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the next length characters of the stream to the output file.
+     */
+    public void write(File output, long length) {
+        try (OutputStream out = new FileOutputStream(output)) {
+            write(out, length);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return independent, uniformly random ASCII characters (0-127)
+     */
+    public static CorpusGenerator uniform(long seed) {
+        return new CorpusGenerator(seed) {
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    buf[i] = (byte) random.nextInt(128);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return independent characters, where the biased character appears with probability prob
+     * and the other ASCII characters appear with equal probability
+     */
+    public static CorpusGenerator biased(long seed, char biased, double prob) {
+        assert biased < 128;
+        return new CorpusGenerator(seed) {
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    if (random.nextDouble() < prob) {
+                        buf[i] = (byte) biased;
+                    } else {
+                        int c = random.nextInt(127);
+                        buf[i] = (byte) (c < biased ? c : c + 1);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return independent '1's and '0's, where the probability of a 1 is prob1
+     */
+    public static CorpusGenerator bits(long seed, double prob1) {
+        return new CorpusGenerator(seed) {
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    buf[i] = (byte) (random.nextDouble() < prob1 ? '1' : '0');
+                }
+            }
+        };
+    }
+
+    /**
+     * @return independent characters following Zipf's law over the given number of printable characters:
+     * the character of rank k (from 1) has probability proportional to 1 / k^exponent.
+     * Which character gets which rank is drawn from the seed.
+     * Requires: 0 < alphabetSize <= 95 and exponent >= 0
+     */
+    public static CorpusGenerator zipf(long seed, int alphabetSize, double exponent) {
+        assert alphabetSize > 0 && alphabetSize <= 95 && exponent >= 0;
+        return new CorpusGenerator(seed) {
+            private final Alias alias = Alias.zipf(random, alphabetSize, exponent);
+
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    buf[i] = alias.sample(random);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a Markov chain of the given order trained on the training text: each character is drawn
+     * from the characters that follow the previous order characters in the training text,
+     * with the same frequencies. The training text is treated as circular, so every context has a successor.
+     * Requires: 0 < order <= 9 and the training text is ASCII and longer than order
+     */
+    public static CorpusGenerator markov(long seed, String training, int order) {
+        assert order > 0 && order <= 9 && training.length() > order;
+        int n = training.length();
+        long mask = (1L << (7 * order)) - 1;
+        // number the contexts, and for each context, list the characters that follow it
+        // together with the number of the context they lead to, so generating needs no lookups
+        Map<Long, Integer> ids = new HashMap<>();
+        long[] contexts = new long[n];
+        long context = 0;
+        for (int i = 0; i < order; i++) {
+            context = (context << 7) | training.charAt(i);
+        }
+        for (int i = 0; i < n; i++) {
+            contexts[i] = context;  // the context before training[(i + order) % n]
+            ids.putIfAbsent(context, ids.size());
+            context = ((context << 7) | training.charAt((i + order) % n)) & mask;
+        }
+        int[] counts = new int[ids.size()];
+        for (long c : contexts) {
+            counts[ids.get(c)]++;
+        }
+        byte[][] next = new byte[ids.size()][];
+        int[][] nextId = new int[ids.size()][];
+        for (int id = 0; id < counts.length; id++) {
+            next[id] = new byte[counts[id]];
+            nextId[id] = new int[counts[id]];
+        }
+        int[] filled = new int[ids.size()];
+        for (int i = 0; i < n; i++) {
+            int id = ids.get(contexts[i]);
+            next[id][filled[id]] = (byte) training.charAt((i + order) % n);
+            nextId[id][filled[id]++] = ids.get(contexts[(i + 1) % n]);
+        }
+        int start = ids.get(contexts[0]);  // the context of the first characters of the training text
+        return new CorpusGenerator(seed) {
+            private int id = start;
+
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    int k = random.nextInt(next[id].length);
+                    buf[i] = next[id][k];
+                    id = nextId[id][k];
+                }
+            }
+        };
+    }
+
+    /**
+     * @return independent characters whose distribution drifts: a mix of two Zipf distributions
+     * (with exponent 1 over 95 printable characters, ranked in different orders),
+     * where the weight of the second goes from 0 to 1 and back over every period characters
+     */
+    public static CorpusGenerator drifting(long seed, long period) {
+        assert period > 0;
+        return new CorpusGenerator(seed) {
+            private final Alias first = Alias.zipf(random, 95, 1);
+            private final Alias second = Alias.zipf(random, 95, 1);
+            private long position = 0;
+            private double weight;
+
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    if (position % DRIFT_STEP == 0) {
+                        // the distribution moves slowly, so the weight is only updated every DRIFT_STEP characters
+                        weight = (1 - Math.cos(2 * Math.PI * (position % period) / period)) / 2;
+                    }
+                    position++;
+                    buf[i] = (random.nextDouble() < weight ? second : first).sample(random);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the text of base, where at each position a repeat starts with probability repeatProb:
+     * a substring of between minLength and maxLength characters
+     * is copied from the last window characters of the output, as LZ77 would find.
+     * Requires: 0 < minLength <= maxLength <= window
+     */
+    public static CorpusGenerator repeats(long seed, CorpusGenerator base, double repeatProb,
+                                          int minLength, int maxLength, int window) {
+        assert 0 < minLength && minLength <= maxLength && maxLength <= window;
+        return new CorpusGenerator(seed) {
+            private final byte[] history = new byte[window];  // circular: the last window characters
+            private long written = 0;
+            private int untilRepeat = -1;  // characters of base before the next repeat, or -1 if not drawn yet
+
+            @Override
+            protected void fill(byte[] buf, int off, int len) {
+                int i = off;
+                while (i < off + len) {
+                    if (untilRepeat < 0) {
+                        // the gaps between repeats are geometric, so they can be drawn at once
+                        double gap = Math.log(1 - random.nextDouble()) / Math.log(1 - repeatProb);
+                        untilRepeat = (int) Math.min(gap, Integer.MAX_VALUE);
+                    }
+                    if (untilRepeat == 0 && written >= maxLength) {
+                        int length = Math.min(random.nextInt(minLength, maxLength + 1), off + len - i);
+                        int distance = random.nextInt(length, (int) Math.min(window, written) + 1);
+                        for (int k = 0; k < length; k++) {
+                            append(buf, i++, history[(int) ((written - distance) % window)]);
+                        }
+                        untilRepeat = -1;
+                    } else {
+                        int n = Math.min(Math.max(untilRepeat, 1), off + len - i);
+                        base.fill(buf, i, n);
+                        for (int k = 0; k < n; k++) {
+                            append(buf, i + k, buf[i + k]);
+                        }
+                        i += n;
+                        untilRepeat = Math.max(untilRepeat - n, 0);
+                    }
+                }
+            }
+
+            private void append(byte[] buf, int i, byte c) {
+                buf[i] = c;
+                history[(int) (written++ % window)] = c;
+            }
+        };
+    }
+
+    /**
+     * Samples from a discrete distribution in constant time with Walker's alias method.
+     */
+    private static class Alias {
+        private final byte[] symbols;
+        private final double[] prob;  // keep column i with this probability, otherwise take alias[i]
+        private final int[] alias;
+
+        private Alias(byte[] symbols, double[] weights) {
+            int n = symbols.length;
+            this.symbols = symbols;
+            this.prob = new double[n];
+            this.alias = new int[n];
+            double total = 0;
+            for (double w : weights) {
+                total += w;
+            }
+            double[] scaled = new double[n];
+            List<Integer> small = new ArrayList<>();
+            List<Integer> large = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                (scaled[i] < 1 ? small : large).add(i);
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int s = small.remove(small.size() - 1);
+                int l = large.remove(large.size() - 1);
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] -= 1 - scaled[s];
+                (scaled[l] < 1 ? small : large).add(l);
+            }
+            for (int i : small) {
+                prob[i] = 1;  // only left over because of rounding
+            }
+            for (int i : large) {
+                prob[i] = 1;
+            }
+        }
+
+        /**
+         * @return Zipf's law over alphabetSize printable characters in a random order
+         */
+        static Alias zipf(SplittableRandom random, int alphabetSize, double exponent) {
+            byte[] printable = new byte[95];
+            for (int i = 0; i < printable.length; i++) {
+                printable[i] = (byte) (' ' + i);
+            }
+            for (int i = printable.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                byte tmp = printable[i];
+                printable[i] = printable[j];
+                printable[j] = tmp;
+            }
+            byte[] symbols = new byte[alphabetSize];
+            double[] weights = new double[alphabetSize];
+            for (int k = 0; k < alphabetSize; k++) {
+                symbols[k] = printable[k];
+                weights[k] = 1 / Math.pow(k + 1, exponent);
+            }
+            return new Alias(symbols, weights);
+        }
+
+        byte sample(SplittableRandom random) {
+            double u = random.nextDouble() * symbols.length;
+            int i = (int) u;
+            return u - i < prob[i] ? symbols[i] : symbols[alias[i]];
+        }
+    }
+}
@@ -1,12 +1,40 @@
+import coding.CodecFactory;
+import coding.Framing;
+import coding.huffman.AdaptiveHuffmanDecoder;
+import coding.huffman.AdaptiveHuffmanEncoder;
+import coding.huffman.BlockHuffmanDecoder;
+import coding.huffman.BlockHuffmanEncoder;
+import coding.huffman.CompressedStringList;
+import coding.huffman.ContextHuffmanDecoder;
+import coding.huffman.ContextHuffmanEncoder;
+import coding.huffman.HuffmanCodebook;
+import coding.huffman.HuffmanCodebookCache;
+import coding.huffman.HuffmanCodecFactory;
 import coding.huffman.HuffmanDecoder;
+import coding.huffman.HuffmanDecoderSession;
 import coding.huffman.HuffmanEncoder;
+import coding.huffman.HuffmanEncoderSession;
+import coding.huffman.HuffmanSearcher;
+import coding.huffman.ParallelHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HuffmanTest {
     @Test
@@ -84,4 +112,329 @@ class HuffmanTest {
         encoded.delete();
         decoded.delete();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCodecFactory() {
+        // every ASCII character appears in the training text, so any random string can be encoded
+        HuffmanCodecFactory factory = new HuffmanCodecFactory(TestUtil.getRandomString(10000));
+        TestUtil.assertConcurrentRoundTrips(factory);
+        TestUtil.assertBatchRoundTrip(factory);
+
+        // encoders and decoders created from the same codebook share it instead of copying it
+        HuffmanCodebook codebook = HuffmanCodebook.fromText("aaaabbbcc");
+        HuffmanEncoder encoder = new HuffmanEncoder(codebook);
+        assertEquals(codebook, encoder.getCodebook());
+        assertEquals("aaaabbbcc", new HuffmanDecoder(codebook).decode(encoder.encode("aaaabbbcc")));
+    }
+
+    @Test
+    public void testSession() {
+        HuffmanCodebook codebook = HuffmanCodebook.fromText(TestUtil.getRandomString(10000));
+        TestUtil.assertSessionRoundTrip(out -> new HuffmanEncoderSession(codebook, out),
+                () -> new HuffmanDecoderSession(codebook));
+    }
+
+    @Test
+    public void testChannels() {
+        HuffmanCodebook codebook = HuffmanCodebook.fromFile(new File("sampleTexts/alice1.txt"));
+        TestUtil.assertChannelRoundTrip(out -> new HuffmanEncoderSession(codebook, out),
+                () -> new HuffmanDecoderSession(codebook));
+    }
+
+    @Test
+    public void testAdaptive() {
+        // adaptive Huffman coding needs no frequencies in advance, so empty strings are fine
+        for (String str : TestUtil.TEST_STRINGS) {
+            byte[] encoded = new AdaptiveHuffmanEncoder().encode(str);
+            assertEquals(str, new AdaptiveHuffmanDecoder().decode(encoded));
+        }
+
+        for (int i = 1; i < 1000; i++) {
+            String random = TestUtil.getRandomString(i);
+            byte[] encoded = new AdaptiveHuffmanEncoder().encode(random);
+            assertEquals(random, new AdaptiveHuffmanDecoder().decode(encoded));
+            random = TestUtil.getRandomABCString(i);
+            encoded = new AdaptiveHuffmanEncoder().encode(random);
+            assertEquals(random, new AdaptiveHuffmanDecoder().decode(encoded));
+        }
+
+        File alice = new File("sampleTexts/alice_full.txt");
+        File encoded = new File("alice_full.ahuffman");
+        new AdaptiveHuffmanEncoder().encode(alice, encoded);
+        File decoded = new File("alice_full_decoded.txt");
+        new AdaptiveHuffmanDecoder().decode(encoded, decoded);
+        TestUtil.assertFileContentEquals(alice, decoded);
+        encoded.delete();
+        decoded.delete();
+    }
+
+    @Test
+    public void testSemiStatic() {
+        TestUtil.assertRoundTrips(CodecFactory.of(SemiStaticHuffmanEncoder::new, SemiStaticHuffmanDecoder::new));
+
+        // the canonical codebook keeps the code lengths, and the lengths are enough to restore it
+        HuffmanCodebook codebook = HuffmanCodebook.fromFile(new File("sampleTexts/alice_full.txt"));
+        HuffmanCodebook canonical = codebook.canonical();
+        assertArrayEquals(codebook.codeLengths(), canonical.codeLengths());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        canonical.writeCodeLengths(out);
+        HuffmanCodebook restored = HuffmanCodebook.readCodeLengths(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(canonical.codeTable(), restored.codeTable());
+        int[] lengths = new int[129];
+        Arrays.fill(lengths, 1);
+        assertThrows(IllegalArgumentException.class, () -> HuffmanCodebook.fromCodeLengths(lengths));
+    }
+
+    @Test
+    public void testCodebookCache() {
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        String alice1 = alice.substring(0, 50000);
+        String alice2 = alice.substring(50000, 100000);
+        String words = TestUtil.readText(new File("sampleTexts/english_words.txt"));
+
+        HuffmanCodebookCache exact = new HuffmanCodebookCache(2);
+        HuffmanCodebook codebook = exact.get(alice1);
+        assertSame(codebook, exact.get(alice1));
+        assertNotSame(codebook, exact.get(alice2));  // similar but not the same distribution
+        exact.get(words);
+        assertEquals(2, exact.size());
+        assertNotSame(codebook, exact.get(alice1));  // the least recently used codebook was evicted
+        assertEquals(1, exact.hits());
+        assertEquals(4, exact.misses());
+
+        HuffmanCodebookCache approximate = new HuffmanCodebookCache(4, 0.05);
+        codebook = approximate.get(alice1);
+        assertSame(codebook, approximate.get(alice2));
+        assertNotSame(codebook, approximate.get(words));
+
+        CodecFactory cached = CodecFactory.of(() -> new SemiStaticHuffmanEncoder(approximate), SemiStaticHuffmanDecoder::new);
+        TestUtil.assertRoundTrips(cached);
+        TestUtil.assertBatchRoundTrip(cached);
+    }
+
+    @Test
+    public void testBlock() {
+        TestUtil.assertRoundTrips(CodecFactory.of(BlockHuffmanEncoder::new, BlockHuffmanDecoder::new));
+        TestUtil.assertRoundTrips(CodecFactory.of(() -> new BlockHuffmanEncoder(100), BlockHuffmanDecoder::new));
+
+        // on drifting text, per-block tables beat a single table
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        String drifting = alice.substring(0, 50000) + "0110".repeat(10000) + alice.substring(50000, 100000);
+        int blockSize = new BlockHuffmanEncoder(10000).encode(drifting).length;
+        assertTrue(blockSize < new HuffmanEncoder(drifting).encode(drifting).length * 0.9);
+        assertEquals(drifting, new BlockHuffmanDecoder().decode(new BlockHuffmanEncoder(10000).encode(drifting)));
+        // on stationary text, tables are reused instead of paying for a header per block
+        int smallBlocksSize = new BlockHuffmanEncoder(10000).encode(alice).length;
+        assertTrue(smallBlocksSize < new HuffmanEncoder(alice).encode(alice).length * 1.05);
+        // the tables have no end-of-file symbol, so two characters take one bit each
+        String bits = "01".repeat(5000);
+        assertTrue(new BlockHuffmanEncoder(10000).encode(bits).length < 10000 / 8 + 30);
+        String runs = "a".repeat(250) + bits.substring(0, 150);
+        assertEquals(runs, new BlockHuffmanDecoder().decode(new BlockHuffmanEncoder(100).encode(runs)));
+        // a length longer than the input can hold is rejected before anything is allocated for it
+        assertThrows(IllegalArgumentException.class, () -> new BlockHuffmanDecoder().decode(
+                new byte[]{(byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x01, 0x00}));
+    }
+
+    @Test
+    public void testFraming() {
+        for (String str : TestUtil.TEST_STRINGS) {
+            if (str.isEmpty()) {
+                // Huffman encoder does not accept empty strings
+                continue;
+            }
+            HuffmanEncoder encoder = new HuffmanEncoder(str, Framing.LENGTH_PREFIX);
+            HuffmanDecoder decoder = new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX);
+            assertEquals(str, decoder.decode(encoder.encode(str)));
+        }
+        for (int i = 1; i < 1000; i += 7) {
+            String random = TestUtil.getRandomString(i);
+            HuffmanEncoder encoder = new HuffmanEncoder(random, Framing.LENGTH_PREFIX);
+            HuffmanDecoder decoder = new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX);
+            assertEquals(random, decoder.decode(encoder.encode(random)));
+        }
+
+        // the end-of-file symbol has no codeword, unless the text has a single distinct character
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        HuffmanEncoder encoder = new HuffmanEncoder(alice, Framing.LENGTH_PREFIX);
+        assertTrue(encoder.getCodebook().code((char) 128).isEmpty());
+        byte[] encoded = encoder.encode(alice);
+        HuffmanDecoder decoder = new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX);
+        assertEquals(alice, decoder.decode(encoded));
+        assertEquals(alice.substring(0, 200), decoder.decodePrefix(encoded, 200));
+        encoder = new HuffmanEncoder("aaaa", Framing.LENGTH_PREFIX);
+        assertEquals("aaaa", new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX).decode(encoder.encode("aaaa")));
+
+        // a length longer than the input can hold is rejected before anything is allocated for it
+        HuffmanDecoder prefixDecoder = new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX);
+        assertThrows(IllegalArgumentException.class,
+                () -> prefixDecoder.decode(new byte[]{(byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x00}));
+
+        // a codebook with an end-of-file codeword can also be used without it
+        encoder = new HuffmanEncoder(HuffmanCodebook.fromText(alice), Framing.LENGTH_PREFIX);
+        assertEquals(alice, new HuffmanDecoder(encoder, Framing.LENGTH_PREFIX).decode(encoder.encode(alice)));
+    }
+
+    @Test
+    public void testParallelDecode() {
+        for (int i = 1; i < 1000; i += 7) {
+            String random = TestUtil.getRandomString(i);
+            HuffmanEncoder encoder = new HuffmanEncoder(random);
+            byte[] encoded = encoder.encode(random);
+            for (int segments : new int[]{1, 3, 16}) {
+                assertEquals(random, new ParallelHuffmanDecoder(encoder.getCodebook(), segments).decode(encoded));
+            }
+        }
+
+        // many segments, each of which has to find the true codeword boundaries
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        HuffmanEncoder encoder = new HuffmanEncoder(alice);
+        byte[] encoded = encoder.encode(alice);
+        assertEquals(alice, new ParallelHuffmanDecoder(encoder.getCodebook()).decode(encoded));
+        for (int segments : new int[]{2, 7, 64, 1000}) {
+            assertEquals(alice, new ParallelHuffmanDecoder(encoder.getCodebook(), segments).decode(encoded));
+        }
+
+        // a stream cut off before the end-of-file symbol is rejected instead of decoded forever
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelHuffmanDecoder(encoder.getCodebook(), 4).decode(truncated));
+    }
+
+    @Test
+    public void testCompressedStringList() {
+        List<String> words = Arrays.asList(TestUtil.readText(new File("sampleTexts/alice_full.txt")).split(" "));
+        CompressedStringList list = CompressedStringList.of(words);
+        assertEquals(words.size(), list.size());
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(words.get(i), list.get(i));
+        }
+        assertEquals(words, list);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(words.size()));
+
+        // strings can be appended after the bulk build, including characters the code hasn't seen
+        String[] appended = {"", "café", "算术编码", "😀 emoji", "the end"};
+        for (String s : appended) {
+            list.add(s);
+        }
+        for (int i = 0; i < appended.length; i++) {
+            assertEquals(appended[i], list.get(words.size() + i));
+        }
+        list.trimToSize();
+        list.add("after trimming");
+        assertEquals("after trimming", list.get(list.size() - 1));
+
+        // much smaller than the 2 bytes per character of a String, let alone its object overhead
+        long chars = words.stream().mapToLong(String::length).sum();
+        CompressedStringList trimmed = CompressedStringList.of(words);
+        trimmed.trimToSize();
+        assertTrue(trimmed.sizeInBytes() < chars * 0.75);
+
+        // an untrained list escapes everything, but still works, with any sample rate
+        CompressedStringList untrained = new CompressedStringList();
+        CompressedStringList everyString = new CompressedStringList(words.subList(0, 100), 1);
+        for (int i = 0; i < 1000; i++) {
+            untrained.add(words.get(i));
+            everyString.add(words.get(i));
+        }
+        assertEquals(words.subList(0, 1000), untrained);
+        for (int i = 999; i >= 0; i--) {
+            assertEquals(words.get(i), everyString.get(i));
+        }
+    }
+
+    /**
+     * @return the offsets of all occurrences of pattern in text, including overlapping ones
+     */
+    private static List<Integer> occurrences(String text, String pattern) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+            found.add(i);
+            if (i == text.length()) {
+                break;  // the empty pattern
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void testSearch() {
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        for (Framing framing : Framing.values()) {
+            HuffmanEncoder encoder = new HuffmanEncoder(alice, framing);
+            byte[] encoded = encoder.encode(alice);
+            HuffmanSearcher searcher = new HuffmanSearcher(encoder.getCodebook(), framing);
+            for (String pattern : new String[]{"Alice", "the", "e", " ", "Cheshire Cat", "said the Hatter.",
+                    "Off with her head!", "alice", "zzz", "~", "\n", ""}) {
+                assertEquals(occurrences(alice, pattern), searcher.findAll(encoded, pattern));
+                assertEquals(alice.indexOf(pattern), searcher.indexOf(encoded, pattern));
+            }
+        }
+        // the length of a length-prefix stream is not read as codewords
+        String alice1 = TestUtil.readText(new File("sampleTexts/alice1.txt"));
+        HuffmanEncoder prefixEncoder = new HuffmanEncoder(alice1, Framing.LENGTH_PREFIX);
+        HuffmanSearcher prefixSearcher = new HuffmanSearcher(prefixEncoder.getCodebook(), Framing.LENGTH_PREFIX);
+        assertEquals(alice1.indexOf("Alice"), prefixSearcher.indexOf(prefixEncoder.encode(alice1), "Alice"));
+
+        // a small alphabet has many false matches at the wrong bit alignment, and overlapping matches;
+        // with length-prefix framing, the padding after the last character can look like more characters
+        for (Framing framing : Framing.values()) {
+            for (int i = 1; i < 300; i++) {
+                String random = TestUtil.getRandomABCString(i);
+                HuffmanEncoder abcEncoder = new HuffmanEncoder(random, framing);
+                byte[] abcEncoded = abcEncoder.encode(random);
+                HuffmanSearcher abcSearcher = new HuffmanSearcher(abcEncoder.getCodebook(), framing);
+                for (String pattern : new String[]{"A", "B", "AB", "AAA", "ABCA", "CCCC", "D",
+                        TestUtil.getRandomABCString(i % 7)}) {
+                    assertEquals(occurrences(random, pattern), abcSearcher.findAll(abcEncoded, pattern));
+                    assertEquals(random.indexOf(pattern), abcSearcher.indexOf(abcEncoded, pattern));
+                }
+            }
+            for (String str : Arrays.copyOfRange(TestUtil.TEST_STRINGS, 1, TestUtil.TEST_STRINGS.length)) {
+                HuffmanEncoder strEncoder = new HuffmanEncoder(str, framing);
+                HuffmanSearcher strSearcher = new HuffmanSearcher(strEncoder.getCodebook(), framing);
+                assertEquals(occurrences(str, "a"), strSearcher.findAll(strEncoder.encode(str), "a"));
+                assertEquals(occurrences(str, ""), strSearcher.findAll(strEncoder.encode(str), ""));
+            }
+        }
+        // a length longer than the stream can hold is rejected
+        assertThrows(IllegalArgumentException.class,
+                () -> prefixSearcher.findAll(new byte[]{(byte) 0xFF, (byte) 0xFF, 0x7F, 0}, "e"));
+    }
+
+    @Test
+    public void testContextHuffman() {
+        CodecFactory factory = CodecFactory.of(ContextHuffmanEncoder::new, ContextHuffmanDecoder::new);
+        TestUtil.assertRoundTrips(factory);
+        for (int i = 1; i < 300; i++) {
+            String random = TestUtil.getRandomABCString(i);
+            assertEquals(random, factory.decode(factory.encode(random)));
+        }
+
+        // conditioning on the previous character beats the order-0 code on English
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        int size = factory.encode(alice).length;
+        assertTrue(size < new SemiStaticHuffmanEncoder().encode(alice).length * 0.85);
+        assertTrue(size < alice.length() * 0.48);
+
+        byte[] encoded = factory.encode(alice);
+        assertThrows(IllegalArgumentException.class, () -> factory.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+        // a forged length is rejected before anything is allocated for it
+        byte[] forged = {(byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x00};
+        assertThrows(IllegalArgumentException.class, () -> factory.decode(forged));
+    }
+
+    @Test
+    public void testLazyDecode() {
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        HuffmanEncoder encoder = new HuffmanEncoder(alice);
+        byte[] encoded = encoder.encode(alice);
+        HuffmanDecoder decoder = new HuffmanDecoder(encoder);
+        assertEquals(alice.substring(0, 200), decoder.decodePrefix(encoded, 200));
+        assertEquals(alice, decoder.decodePrefix(encoded, Integer.MAX_VALUE));
+
+        encoder = new HuffmanEncoder("a");
+        decoder = new HuffmanDecoder(encoder);
+        assertEquals("a", decoder.decodePrefix(encoder.encode("a"), 200));
+    }
+}
@@ -0,0 +1,63 @@
+import coding.CodecFactory;
+import coding.ac.ACCodecFactory;
+import coding.ac.SemiStaticACDecoder;
+import coding.ac.SemiStaticACEncoder;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+import coding.lz77.LZ77Decoder;
+import coding.lz77.LZ77Encoder;
+import coding.lz77.LZ77Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LZ77Test {
+    @Test
+    public void testParse() {
+        LZ77Parser parser = new LZ77Parser();
+        for (String str : TestUtil.TEST_STRINGS) {
+            assertEquals(str, LZ77Parser.unparse(parser.parse(str)));
+        }
+        // a match can overlap the text it copies
+        LZ77Parser.Streams streams = parser.parse("ab" + "a".repeat(1000));
+        assertEquals("aba", streams.literals());
+        assertEquals("ab" + "a".repeat(1000), LZ77Parser.unparse(streams));
+
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        for (LZ77Parser.Effort effort : LZ77Parser.Effort.values()) {
+            for (int windowSize : new int[]{1 << 10, LZ77Parser.DEFAULT_WINDOW_SIZE}) {
+                assertEquals(alice, LZ77Parser.unparse(new LZ77Parser(windowSize, effort).parse(alice)));
+            }
+        }
+        // more effort finds more matches
+        int fastLiterals = new LZ77Parser(LZ77Parser.Effort.FAST).parse(alice).literals().length();
+        int maxLiterals = new LZ77Parser(LZ77Parser.Effort.MAX).parse(alice).literals().length();
+        assertTrue(maxLiterals < fastLiterals);
+    }
+
+    @Test
+    public void testRoundTrips() {
+        CodecFactory[] entropyCoders = {
+                ACCodecFactory.dirichlet(0.01),
+                CodecFactory.of(SemiStaticACEncoder::new, SemiStaticACDecoder::new),
+                CodecFactory.of(SemiStaticHuffmanEncoder::new, SemiStaticHuffmanDecoder::new)
+        };
+        for (CodecFactory entropyCoder : entropyCoders) {
+            for (LZ77Parser.Effort effort : LZ77Parser.Effort.values()) {
+                TestUtil.assertRoundTrips(CodecFactory.of(() -> new LZ77Encoder(entropyCoder, effort),
+                        () -> new LZ77Decoder(entropyCoder)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompression() {
+        // matches capture repeated substrings that order-0 coding can't
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        CodecFactory semiStatic = CodecFactory.of(SemiStaticACEncoder::new, SemiStaticACDecoder::new);
+        int lz77Size = new LZ77Encoder(semiStatic).encode(alice).length;
+        assertTrue(lz77Size < semiStatic.encode(alice).length * 0.7);
+    }
+}
@@ -0,0 +1,159 @@
+import coding.CodecFactory;
+import coding.CompressedLog;
+import coding.PipelinedCompressor;
+import coding.ac.ACCodecFactory;
+import coding.huffman.SemiStaticHuffmanDecoder;
+import coding.huffman.SemiStaticHuffmanEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+    private static byte[] readBytes(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeBytes(File file, byte[] bytes) {
+        try {
+            Files.write(file.toPath(), bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] compress(PipelinedCompressor compressor, byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressor.compress(new ByteArrayInputStream(bytes), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(PipelinedCompressor compressor, byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressor.decompress(new ByteArrayInputStream(bytes), out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testFiles() {
+        // unlike Encoder.encode(File, File), the pipeline keeps the line breaks
+        File original = new File("sampleTexts/alice_full.txt");
+        File encoded = new File("alice_full.pipelined");
+        File decoded = new File("alice_full_pipelined.txt");
+        PipelinedCompressor compressor = new PipelinedCompressor(ACCodecFactory.dirichlet(0.01));
+        compressor.compress(original, encoded);
+        compressor.decompress(encoded, decoded);
+        assertArrayEquals(readBytes(original), readBytes(decoded));
+        assertTrue(encoded.length() < original.length() * 0.6);
+
+        encoded.delete();
+        decoded.delete();
+    }
+
+    @Test
+    public void testRoundTrips() {
+        CodecFactory[] factories = {
+                ACCodecFactory.dirichlet(0.01),
+                CodecFactory.of(SemiStaticHuffmanEncoder::new, SemiStaticHuffmanDecoder::new)
+        };
+        byte[] alice = readBytes(new File("sampleTexts/alice_full.txt"));
+        for (CodecFactory factory : factories) {
+            // small blocks and many workers make blocks finish out of order
+            for (int workers : new int[]{1, 2, 8}) {
+                for (int blockSize : new int[]{1000, 1 << 16}) {
+                    PipelinedCompressor compressor = new PipelinedCompressor(factory, blockSize, workers);
+                    assertArrayEquals(alice, decompress(compressor, compress(compressor, alice)));
+                    for (String str : TestUtil.TEST_STRINGS) {
+                        byte[] bytes = str.getBytes();
+                        assertArrayEquals(bytes, decompress(compressor, compress(compressor, bytes)));
+                    }
+                }
+            }
+            // the same blocks give the same output, whatever the number of workers
+            assertArrayEquals(compress(new PipelinedCompressor(factory, 1000, 1), alice),
+                    compress(new PipelinedCompressor(factory, 1000, 8), alice));
+        }
+    }
+
+    @Test
+    public void testFailures() {
+        PipelinedCompressor compressor = new PipelinedCompressor(ACCodecFactory.dirichlet(0.01), 1000, 4);
+        byte[] alice = readBytes(new File("sampleTexts/alice_full.txt"));
+        // a failure in any stage stops the pipeline instead of leaving it waiting
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            byte[] nonAscii = Arrays.copyOf(alice, alice.length);
+            nonAscii[50000] = (byte) 0xE9;
+            assertThrows(IllegalArgumentException.class, () -> compress(compressor, nonAscii));
+
+            byte[] compressed = compress(compressor, alice);
+            byte[] truncated = Arrays.copyOf(compressed, compressed.length - 10);
+            assertThrows(IllegalArgumentException.class, () -> decompress(compressor, truncated));
+
+            OutputStream broken = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("disk full");
+                }
+            };
+            assertThrows(RuntimeException.class,
+                    () -> compressor.compress(new ByteArrayInputStream(alice), broken));
+        });
+    }
+    @Test
+    public void testCompressedLog() {
+        File file = new File("test.log.compressed");
+        file.delete();
+        CompressedLog log = new CompressedLog(file, ACCodecFactory.dirichlet(0.01), 1000);
+        assertEquals("", log.read());
+
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < alice.length(); i += 7919) {
+            String record = alice.substring(i, Math.min(alice.length(), i + 7919));
+            byte[] before = file.exists() ? readBytes(file) : new byte[0];
+            log.append(record);
+            expected.append(record);
+            // appending leaves the existing segments as they were
+            assertArrayEquals(before, Arrays.copyOf(readBytes(file), before.length));
+        }
+        try (CompressedLog.Appender appender = log.appender()) {
+            for (String str : TestUtil.TEST_STRINGS) {
+                appender.write(str);
+                appender.flush();
+                expected.append(str);
+            }
+        }
+        assertEquals(expected.toString(), log.read());
+        assertTrue(file.length() < alice.length() * 0.6);
+
+        // the segments are the same frames that the pipelined compressor reads
+        PipelinedCompressor compressor = new PipelinedCompressor(ACCodecFactory.dirichlet(0.01));
+        assertArrayEquals(expected.toString().getBytes(), decompress(compressor, readBytes(file)));
+
+        // a segment cut off by a crash is rejected
+        byte[] bytes = readBytes(file);
+        writeBytes(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IllegalArgumentException.class, log::read);
+
+        // the next appender cuts a torn segment off, whether it ends in the payload or in the length,
+        // so what is appended after a crash can be read
+        writeBytes(file, bytes);
+        log.append(alice.substring(0, 1000));
+        byte[] withRecord = readBytes(file);
+        for (int kept : new int[]{withRecord.length - 1, bytes.length + 1}) {
+            writeBytes(file, Arrays.copyOf(withRecord, kept));
+            log.append("after the crash");
+            assertEquals(expected + "after the crash", log.read());
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,249 @@
+import coding.CodecFactory;
+import coding.ac.*;
+import coding.bwt.BWTDecoder;
+import coding.bwt.BWTEncoder;
+import coding.lz77.LZ77Decoder;
+import coding.lz77.LZ77Encoder;
+import coding.huffman.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every coder/model combination over the sample texts and generated corpora,
+ * writes the compressed sizes, encode/decode throughput (of the fastest of several runs)
+ * and peak heap (of the first run) to regression_report.csv,
+ * and fails if any compressed size is worse than regression_baseline.csv by more than the tolerance.
+ * Throughput and heap depend on the machine and its load, so they are only measured carefully and compared
+ * with the baseline when run with -Dregression.performance=true; otherwise the report has the times of a single run.
+ * Tolerances are relative and can be set with system properties:
+ * -Dregression.sizeTolerance (default 0.01), -Dregression.speedTolerance (default 0.75,
+ * i.e. fail if more than 4 times slower) and -Dregression.heapTolerance (default 2, i.e. fail if 3 times more heap).
+ * Run with -Dregression.updateBaseline=true (which also measures performance)
+ * to replace the baseline with the new report; otherwise a missing baseline file, or a combination without
+ * a baseline row (such as a new or renamed codec), fails the test.
+ */
+public class RegressionTest {
+    private static final File BASELINE = new File("regression_baseline.csv");
+    private static final File REPORT = new File("regression_report.csv");
+    private static final String HEADER = "corpus,codec,original_bytes,compressed_bytes,encode_mb_per_s,decode_mb_per_s,peak_heap_mb";
+    private static final int GENERATED_LENGTH = 100000;
+    private static final int MAX_RUNS = 10;
+    private static final long MIN_MEASURE_NANOS = 200_000_000;
+
+    /**
+     * @return for each codec, a function from the text to encode to a factory for the codec
+     * (the Huffman codebook is built from the text itself)
+     */
+    private static Map<String, Function<String, CodecFactory>> codecs() {
+        Map<String, Function<String, CodecFactory>> codecs = new LinkedHashMap<>();
+        codecs.put("huffman", HuffmanCodecFactory::new);
+        codecs.put("adaptive_huffman", text -> CodecFactory.of(AdaptiveHuffmanEncoder::new, AdaptiveHuffmanDecoder::new));
+        codecs.put("context_huffman", text -> CodecFactory.of(ContextHuffmanEncoder::new, ContextHuffmanDecoder::new));
+        codecs.put("fixed_prob", text -> new ACCodecFactory(FixedProbModel::new));
+        codecs.put("semi_static", text -> CodecFactory.of(SemiStaticACEncoder::new, SemiStaticACDecoder::new));
+        for (double alpha : new double[]{0.01, 1, 100}) {
+            codecs.put("dirichlet_" + alpha, text -> new ACCodecFactory(() -> new DirichletModel(alpha)));
+        }
+        for (double alpha : new double[]{0.01, 1, 100}) {
+            codecs.put("bigram_" + alpha, text -> new ACCodecFactory(() -> new BigramDirichletModel(alpha)));
+        }
+        codecs.put("mixing_0.01", text -> new ACCodecFactory(() -> new MixingModel(new DirichletModel(0.01), new BigramDirichletModel(0.01))));
+        codecs.put("context_3", text -> new ACCodecFactory(() -> new ContextModel(3, 2.0)));
+        CodecFactory dirichlet = ACCodecFactory.dirichlet(0.01);
+        codecs.put("bwt_dirichlet_0.01", text -> CodecFactory.of(() -> new BWTEncoder(dirichlet), () -> new BWTDecoder(dirichlet)));
+        CodecFactory semiStatic = CodecFactory.of(SemiStaticACEncoder::new, SemiStaticACDecoder::new);
+        codecs.put("lz77_semi_static", text -> CodecFactory.of(() -> new LZ77Encoder(semiStatic), () -> new LZ77Decoder(semiStatic)));
+        return codecs;
+    }
+
+    private static Map<String, String> corpora() {
+        Map<String, String> corpora = new LinkedHashMap<>();
+        corpora.put("alice_full", TestUtil.readText(new File("sampleTexts/alice_full.txt")));
+        corpora.put("english_words", TestUtil.readText(new File("sampleTexts/english_words.txt")));
+        corpora.put("alice1", TestUtil.readText(new File("sampleTexts/alice1.txt")));
+        corpora.put("fox", TestUtil.readText(new File("sampleTexts/fox.txt")));
+        Random random = new Random(4742);
+        StringBuilder unifRandom = new StringBuilder();
+        StringBuilder biased50 = new StringBuilder();
+        StringBuilder biased99 = new StringBuilder();
+        StringBuilder randomBits = new StringBuilder();
+        for (int i = 0; i < GENERATED_LENGTH; i++) {
+            unifRandom.append((char) random.nextInt(128));
+            biased50.append(random.nextDouble() < 0.5 ? 'a' : (char) random.nextInt(128));
+            biased99.append(random.nextDouble() < 0.99 ? 'a' : (char) random.nextInt(128));
+            randomBits.append(random.nextBoolean() ? '1' : '0');
+        }
+        corpora.put("unif_random", unifRandom.toString());
+        corpora.put("biased_random_50", biased50.toString());
+        corpora.put("biased_random_99", biased99.toString());
+        corpora.put("all_a", "a".repeat(GENERATED_LENGTH));
+        corpora.put("random_bits", randomBits.toString());
+        String alice = corpora.get("alice_full");
+        corpora.put("zipf", CorpusGenerator.zipf(4743, 95, 1).generate(GENERATED_LENGTH));
+        corpora.put("markov_3", CorpusGenerator.markov(4744, alice, 3).generate(GENERATED_LENGTH));
+        corpora.put("drifting", CorpusGenerator.drifting(4745, GENERATED_LENGTH / 4).generate(GENERATED_LENGTH));
+        corpora.put("repeats", CorpusGenerator.repeats(4746, CorpusGenerator.markov(4747, alice, 2), 0.01, 20, 200, 1 << 15)
+                .generate(GENERATED_LENGTH));
+        return corpora;
+    }
+
+    /**
+     * The measurements for one codec on one corpus.
+     */
+    private record Result(String corpus, String codec, long original, long compressed,
+                          double encodeMBps, double decodeMBps, double peakHeapMB) {
+        String key() {
+            return corpus + "," + codec;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.1f",
+                    corpus, codec, original, compressed, encodeMBps, decodeMBps, peakHeapMB);
+        }
+
+        static Result fromCsv(String line) {
+            String[] fields = line.split(",");
+            return new Result(fields[0], fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Double.parseDouble(fields[6]));
+        }
+    }
+
+    /**
+     * Encodes and decodes text with codec, and measures the throughput of the fastest of several runs
+     * if benchmark is true, or of the first run otherwise.
+     */
+    private static Result measure(String corpus, String text, String name, CodecFactory codec, boolean benchmark) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        byte[] encoded = codec.encode(text);
+        long encodeTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        String decoded = codec.decode(encoded);
+        long decodeTime = System.nanoTime() - start;
+        assertEquals(text, decoded, name + " failed to round-trip " + corpus);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        double mb = text.length() / 1e6;
+        if (benchmark) {
+            encodeTime = bestTime(() -> codec.encode(text));
+            decodeTime = bestTime(() -> codec.decode(encoded));
+        }
+        double encodeMBps = mb / (encodeTime / 1e9);
+        double decodeMBps = mb / (decodeTime / 1e9);
+        return new Result(corpus, name, text.length(), encoded.length, encodeMBps, decodeMBps, peakHeap / 1e6);
+    }
+
+    /**
+     * Runs the task repeatedly, up to MAX_RUNS times or until it has run for MIN_MEASURE_NANOS in total,
+     * and returns the fastest run in nanoseconds, so that fast codecs are not dominated by timer noise.
+     */
+    private static long bestTime(Runnable task) {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int run = 0; run < MAX_RUNS && total < MIN_MEASURE_NANOS; run++) {
+            long start = System.nanoTime();
+            task.run();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        return best;
+    }
+
+    private static double tolerance(String property, double defaultValue) {
+        return Double.parseDouble(System.getProperty(property, String.valueOf(defaultValue)));
+    }
+
+    private static void writeResults(File file, List<Result> results) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println(HEADER);
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, Result> readResults(File file) {
+        Map<String, Result> results = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line = br.readLine();  // header
+            line = br.readLine();
+            while (line != null) {
+                Result result = Result.fromCsv(line);
+                results.put(result.key(), result);
+                line = br.readLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+
+    @Test
+    public void testNoRegressions() {
+        boolean updateBaseline = Boolean.getBoolean("regression.updateBaseline");
+        assertTrue(updateBaseline || BASELINE.exists(),
+                BASELINE + " is missing; run with -Dregression.updateBaseline=true to create it");
+        boolean performance = Boolean.getBoolean("regression.performance") || updateBaseline;
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, String> corpus : corpora().entrySet()) {
+            for (Map.Entry<String, Function<String, CodecFactory>> codec : codecs().entrySet()) {
+                results.add(measure(corpus.getKey(), corpus.getValue(), codec.getKey(),
+                        codec.getValue().apply(corpus.getValue()), performance));
+            }
+        }
+        writeResults(REPORT, results);
+        if (updateBaseline) {
+            writeResults(BASELINE, results);
+            return;
+        }
+
+        double sizeTolerance = tolerance("regression.sizeTolerance", 0.01);
+        double speedTolerance = tolerance("regression.speedTolerance", 0.75);
+        double heapTolerance = tolerance("regression.heapTolerance", 2);
+        Map<String, Result> baseline = readResults(BASELINE);
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            Result base = baseline.get(result.key());
+            if (base == null) {
+                // a new or renamed combination must be added to the baseline on purpose
+                regressions.add(result.key() + ": no baseline row; run with -Dregression.updateBaseline=true to add it");
+                continue;
+            }
+            if (result.compressed() > base.compressed() * (1 + sizeTolerance)) {
+                regressions.add(String.format("%s: size %d > baseline %d", result.key(), result.compressed(), base.compressed()));
+            }
+            if (!performance) {
+                continue;
+            }
+            if (result.encodeMBps() < base.encodeMBps() * (1 - speedTolerance)) {
+                regressions.add(String.format("%s: encode %.3f MB/s < baseline %.3f MB/s", result.key(), result.encodeMBps(), base.encodeMBps()));
+            }
+            if (result.decodeMBps() < base.decodeMBps() * (1 - speedTolerance)) {
+                regressions.add(String.format("%s: decode %.3f MB/s < baseline %.3f MB/s", result.key(), result.decodeMBps(), base.decodeMBps()));
+            }
+            if (result.peakHeapMB() > base.peakHeapMB() * (1 + heapTolerance)) {
+                regressions.add(String.format("%s: peak heap %.1f MB > baseline %.1f MB", result.key(), result.peakHeapMB(), base.peakHeapMB()));
+            }
+        }
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+}
@@ -1,9 +1,35 @@
+import coding.CodecFactory;
+import coding.CompressingChannel;
+import coding.DecoderSession;
+import coding.DecompressingChannel;
+import coding.EncodedBatch;
+import coding.EncoderSession;
+
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestUtil {
     // test strings only contain ASCII characters (0-127)
@@ -46,6 +72,26 @@ public class TestUtil {
         return sb.toString();
     }
 
+    /**
+     * @return the contents of the text file without line breaks,
+     * the same way that Encoder.encode(File, File) reads it
+     */
+    public static String readText(File file) {
+        try {
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            StringBuilder sb = new StringBuilder();
+            String line = br.readLine();
+            while (line != null) {
+                sb.append(line);
+                line = br.readLine();
+            }
+            br.close();
+            return sb.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Assert that two text files have the same contents
      */
@@ -73,4 +119,154 @@ public class TestUtil {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Encode and decode the test strings, random strings and the large sample texts
+     * with the given factory and assert that every round trip gives back the original string.
+     */
+    public static void assertRoundTrips(CodecFactory factory) {
+        for (String str : TEST_STRINGS) {
+            assertEquals(str, factory.decode(factory.encode(str)));
+        }
+        for (int i = 1; i < 1000; i += 37) {
+            String random = getRandomString(i);
+            assertEquals(random, factory.decode(factory.encode(random)));
+        }
+        for (String file : new String[]{"sampleTexts/alice_full.txt", "sampleTexts/english_words.txt"}) {
+            String text = readText(new File(file));
+            assertEquals(text, factory.decode(factory.encode(text)));
+        }
+    }
+
+    /**
+     * Encode and decode a small batch (the test strings) and a large batch of random messages
+     * with the given factory, and assert that the batches give back the original messages
+     * and hold the same bytes as encoding each message on its own.
+     */
+    public static void assertBatchRoundTrip(CodecFactory factory) {
+        List<String> large = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            large.add(getRandomString(100 + i % 400));
+        }
+        for (List<String> messages : List.of(Arrays.asList(TEST_STRINGS), large)) {
+            EncodedBatch batch = factory.encodeAll(messages);
+            assertEquals(messages.size(), batch.size());
+            for (int i = 0; i < messages.size(); i += 97) {
+                assertArrayEquals(factory.encode(messages.get(i)), batch.message(i));
+            }
+            assertEquals(messages, factory.decodeAll(batch));
+            // the batch owns its arrays, and can be rebuilt from copies of them
+            byte[] data = batch.data();
+            Arrays.fill(data, (byte) 0);
+            assertEquals(messages, factory.decodeAll(batch));
+            assertEquals(messages, factory.decodeAll(new EncodedBatch(batch.data(), batch.offsets())));
+        }
+    }
+
+    /**
+     * Encode and decode random strings with the given factory from several threads at once
+     * and assert that every round trip gives back the original string.
+     */
+    public static void assertConcurrentRoundTrips(CodecFactory factory) {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 1; i < 200; i++) {
+                    String random = getRandomString(i);
+                    assertEquals(random, factory.decode(factory.encode(random)));
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Write random chunks to an encoder session with a flush after each chunk,
+     * feed the output to a decoder session one byte at a time,
+     * and assert that everything written before each flush can be decoded right after it.
+     */
+    public static void assertSessionRoundTrip(Function<OutputStream, EncoderSession> encGen,
+                                              Supplier<DecoderSession> decGen) {
+        for (int i = 0; i < 100; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            EncoderSession encoder = encGen.apply(out);
+            DecoderSession decoder = decGen.get();
+            StringBuilder written = new StringBuilder();
+            StringBuilder decoded = new StringBuilder();
+            int fed = 0;
+            for (int chunk = 0; chunk < 5; chunk++) {
+                String random = getRandomString((i * 7 + chunk * 13) % 50);  // some chunks are empty
+                encoder.write(random);
+                written.append(random);
+                encoder.flush();
+                byte[] bytes = out.toByteArray();
+                for (; fed < bytes.length; fed++) {
+                    decoder.feed(new byte[]{bytes[fed]});
+                    decoded.append(decoder.readAvailable());
+                }
+                assertEquals(written.toString(), decoded.toString());
+                assertFalse(decoder.isFinished());
+            }
+            encoder.finish();
+            byte[] bytes = out.toByteArray();
+            decoder.feed(Arrays.copyOfRange(bytes, fed, bytes.length));
+            decoded.append(decoder.readAvailable());
+            assertEquals(written.toString(), decoded.toString());
+            assertTrue(decoder.isFinished());
+        }
+    }
+
+    /**
+     * Compress a sample text through a CompressingChannel in chunks of direct buffers,
+     * then decompress it through a DecompressingChannel, and assert that the result is the original text.
+     */
+    public static void assertChannelRoundTrip(Function<WritableByteChannel, EncoderSession> encGen,
+                                              Supplier<DecoderSession> decGen) {
+        try {
+            String text = readText(new File("sampleTexts/alice1.txt"));
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            WritableByteChannel target = Channels.newChannel(compressed);
+            try (CompressingChannel channel = new CompressingChannel(encGen.apply(target), target)) {
+                // a chunk with a non-ASCII byte is rejected before any of it reaches the stream
+                ByteBuffer invalid = ByteBuffer.wrap(new byte[]{'a', (byte) 0xE9, 'b'});
+                assertThrows(IllegalArgumentException.class, () -> channel.write(invalid));
+                assertEquals(0, invalid.position());
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+                for (int i = 0; i < text.length(); i++) {
+                    buffer.put((byte) text.charAt(i));
+                    if (!buffer.hasRemaining() || i == text.length() - 1) {
+                        buffer.flip();
+                        channel.write(buffer);
+                        buffer.clear();
+                    }
+                }
+            }
+
+            DecompressingChannel channel = new DecompressingChannel(decGen.get(),
+                    Channels.newChannel(new ByteArrayInputStream(compressed.toByteArray())), 64);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(777);
+            StringBuilder decompressed = new StringBuilder();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    decompressed.append((char) buffer.get());
+                }
+                buffer.clear();
+            }
+            channel.close();
+            assertEquals(text, decompressed.toString());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+import coding.CodecFactory;
+import coding.Decoder;
+import coding.Encoder;
+import coding.ac.UnicodeACDecoder;
+import coding.ac.UnicodeACEncoder;
+import coding.huffman.UnicodeHuffmanDecoder;
+import coding.huffman.UnicodeHuffmanEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnicodeTest {
+    private static final String[] UNICODE_STRINGS = {
+            "",
+            "é",
+            "naïve café, déjà vu",
+            "Αλφάβητο και κωδικοποίηση",
+            "算术编码和霍夫曼编码",
+            "日本語のテキスト、한국어 텍스트",
+            "emoji 😀🎉👍 outside the basic multilingual plane 𝄞𝕏",
+            "mixed: abc Ω 中 😀 abc Ω 中 😀",
+            "\u0000\u0080�퟿"
+    };
+
+    /**
+     * @return a random string of length code points chosen uniformly from the valid code points below alphabetSize
+     */
+    private static String getRandomCodePoints(int length, int alphabetSize, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        while (count < length) {
+            int codePoint = random.nextInt(alphabetSize);
+            if (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE) {
+                sb.appendCodePoint(codePoint);
+                count++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private void testRoundTrips(Supplier<Encoder> encGen, Supplier<Decoder> decGen, int alphabetSize) {
+        TestUtil.assertRoundTrips(CodecFactory.of(encGen, decGen));
+        for (String str : UNICODE_STRINGS) {
+            assertEquals(str, decGen.get().decode(encGen.get().encode(str)));
+        }
+        for (int i = 0; i < 100; i++) {
+            String random = getRandomCodePoints(i * 10, alphabetSize, i);
+            assertEquals(random, decGen.get().decode(encGen.get().encode(random)));
+        }
+        // a text over a few thousand CJK characters
+        String cjk = getRandomCodePoints(100000, 0x4E00 + 3000, 42).codePoints()
+                .map(c -> 0x4E00 + c % 3000)
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+        assertEquals(cjk, decGen.get().decode(encGen.get().encode(cjk)));
+    }
+
+    @Test
+    public void testAC() {
+        testRoundTrips(UnicodeACEncoder::new, UnicodeACDecoder::new, Character.MAX_CODE_POINT + 1);
+        testRoundTrips(() -> new UnicodeACEncoder(1 << 17), UnicodeACDecoder::new, 1 << 17);
+    }
+
+    @Test
+    public void testHuffman() {
+        testRoundTrips(UnicodeHuffmanEncoder::new, UnicodeHuffmanDecoder::new, Character.MAX_CODE_POINT + 1);
+    }
+
+    @Test
+    public void testAlphabetSize() {
+        assertThrows(IllegalArgumentException.class, () -> new UnicodeACEncoder(128).encode("café"));
+        assertThrows(IllegalArgumentException.class, () -> new UnicodeHuffmanEncoder(128).encode("café"));
+        assertEquals("cafe", new UnicodeACDecoder().decode(new UnicodeACEncoder(128).encode("cafe")));
+        assertEquals("cafe", new UnicodeHuffmanDecoder().decode(new UnicodeHuffmanEncoder(128).encode("cafe")));
+    }
+
+    @Test
+    public void testCompression() {
+        // on ASCII text, the cost of escaping new code points is small
+        String alice = TestUtil.readText(new File("sampleTexts/alice_full.txt"));
+        assertTrue(new UnicodeACEncoder().encode(alice).length < alice.length() * 0.6);
+        assertTrue(new UnicodeHuffmanEncoder().encode(alice).length < alice.length() * 0.6);
+        // 3000 equally likely code points take about log2(3000) < 11.6 bits each, plus the cost of the new code points
+        String cjk = getRandomCodePoints(100000, 3000, 7).codePoints()
+                .map(c -> 0x4E00 + c)
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+        assertTrue(new UnicodeACEncoder().encode(cjk).length < 100000 * 12.5 / 8);
+        assertTrue(new UnicodeHuffmanEncoder().encode(cjk).length < 100000 * 12.5 / 8);
+    }
+}